@@ -2,8 +2,10 @@ package ru.yandex.practicum.javafilmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class JavaFilmorateApplication {
 
 	public static void main(String[] args) {
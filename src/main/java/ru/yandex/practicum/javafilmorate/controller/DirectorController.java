@@ -21,35 +21,35 @@ public class DirectorController {
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
     public List<Director> findAll() {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /directors");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /directors");
         return directorService.findAll();
     }
 
     @GetMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     public Director findById(@PathVariable Integer id) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /directors/{}", id);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /directors/{}", id);
         return directorService.findById(id);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Director addDirector(@Valid @RequestBody Director director) {
-        log.info("КОНТРОЛЛЕР: POST-запрос по эндпоинту /directors");
+        log.debug("КОНТРОЛЛЕР: POST-запрос по эндпоинту /directors");
         return directorService.addDirector(director);
     }
 
     @PutMapping
     @ResponseStatus(HttpStatus.OK)
     public Director updateDirector(@Valid @RequestBody Director director) {
-        log.info("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /directors");
+        log.debug("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /directors");
         return directorService.updateDirector(director);
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.OK)
     public void deleteDirector(@PathVariable Integer id) {
-        log.info("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /directors/{}", id);
+        log.debug("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /directors/{}", id);
         directorService.deleteDirector(id);
     }
 }
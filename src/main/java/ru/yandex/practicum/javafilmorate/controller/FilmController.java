@@ -1,15 +1,24 @@
 package ru.yandex.practicum.javafilmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.javafilmorate.model.BulkImportResult;
 import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Suggestion;
+import ru.yandex.practicum.javafilmorate.service.FilmImportService;
 import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.utils.NdjsonUtil;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
@@ -18,25 +27,31 @@ import java.util.List;
 @AllArgsConstructor
 @Validated
 public class FilmController {
+    /* Без параметров отдаётся весь список (прежний контракт), а страница без limit ограничена */
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
     private final FilmService filmService;
+    private final FilmImportService filmImportService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/{id}")
     public Film findById(@PathVariable int id) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/{}", id);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/{}", id);
         return filmService.findById(id);
     }
 
     @GetMapping(value = "/popular", params = "genreId")
     public List<Film> getPopularByGenre(@RequestParam(value = "count", defaultValue = "10") @Min(1) Integer count,
                                         @RequestParam Integer genreId) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular params = {count, genreId}");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular params = {count, genreId}");
         return filmService.getPopularByGenre(count, genreId);
     }
 
     @GetMapping(value = "/popular", params = "year")
     public List<Film> getPopularByYear(@RequestParam(defaultValue = "10") @Min(1) Integer count,
                                        @RequestParam @Min(1895) Integer year) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular params = {count, year}");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular params = {count, year}");
         return filmService.getPopularByYear(count, year);
     }
 
@@ -44,68 +59,97 @@ public class FilmController {
     public List<Film> getPopularByGenreAndYear(@RequestParam(defaultValue = "10") @Min(1) Integer count,
                                                @RequestParam Integer genreId,
                                                @RequestParam @Min(1895) Integer year) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular params = {count, genreId, year}");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular params = {count, genreId, year}");
         return filmService.getPopularByGenreAndYear(count, genreId, year);
     }
 
     @GetMapping(value = "/popular")
     public List<Film> getPopularFilms(@RequestParam(value = "count", defaultValue = "10") @Min(1) Integer count) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/popular");
         return filmService.getPopularFilms(count);
     }
 
+    @GetMapping("/suggest")
+    public List<Suggestion> suggest(@RequestParam String prefix,
+                                    @RequestParam(defaultValue = "10") @Min(1) @Max(100) int count) {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/suggest?prefix={}", prefix);
+        return filmService.suggest(prefix, count);
+    }
+
     @GetMapping("/search")
     public List<Film> searchBySubstring(@RequestParam String query, @RequestParam String by) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/search");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/search");
         return filmService.searchBySubstring(query, by);
     }
 
     @GetMapping
-    public List<Film> findAll() {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films");
-        return filmService.findAll();
+    public List<Film> findAll(@RequestParam(required = false) @Min(0) Integer afterId,
+                              @RequestParam(required = false) @Min(1) @Max(MAX_PAGE_LIMIT) Integer limit) {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films params = {afterId, limit}");
+        if (afterId == null && limit == null) {
+            return filmService.findAll();
+        }
+        return filmService.findAll(afterId == null ? 0 : afterId, limit == null ? DEFAULT_PAGE_LIMIT : limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films в формате NDJSON");
+        return out -> filmService.streamAll(film -> NdjsonUtil.writeLine(objectMapper, out, film));
     }
 
     @GetMapping("/director/{directorId}")
     public List<Film> findDirectorFilmsByYearOrLikes(@PathVariable Integer directorId, @RequestParam String sortBy) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/director/{directorId}");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/director/{directorId}");
         return filmService.findDirectorFilmsByYearOrLikes(directorId, sortBy);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Film addFilm(@Valid @RequestBody Film film) {
-        log.info("КОНТРОЛЛЕР: POST-запрос по эндпоинту /films");
+        log.debug("КОНТРОЛЛЕР: POST-запрос по эндпоинту /films");
         return filmService.addFilm(film);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importFilms(InputStream body) {
+        log.debug("КОНТРОЛЛЕР: POST-запрос по эндпоинту /films/bulk");
+        return filmImportService.importFilms(body);
+    }
+
+    @PostMapping(value = "/marks/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importMarks(InputStream body) {
+        log.debug("КОНТРОЛЛЕР: POST-запрос по эндпоинту /films/marks/bulk");
+        return filmImportService.importMarks(body);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
-        log.info("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /films");
+        log.debug("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /films");
         return filmService.updateFilm(film);
     }
 
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable int id, @PathVariable int userId, @Valid @RequestParam Integer rating) {
-        log.info("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /films/{}/like/{}", id, userId);
+        log.debug("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /films/{}/like/{}", id, userId);
         filmService.addMark(id, userId, rating);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
     public void deleteLike(@PathVariable int id, @PathVariable int userId) {
-        log.info("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /films/{}/like/{}", id, userId);
+        log.debug("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /films/{}/like/{}", id, userId);
         filmService.deleteMark(id, userId);
     }
 
     @DeleteMapping("/{filmId}")
     public void deleteFilm(@PathVariable int filmId) {
-        log.info("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /{}", filmId);
+        log.debug("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /{}", filmId);
         filmService.deleteFilm(filmId);
     }
 
     @GetMapping("/common")
     public List<Film> commonFilms(@RequestParam int userId, @RequestParam int friendId) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/common?userId={}&friendId={}", userId, friendId);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /films/common?userId={}&friendId={}", userId, friendId);
         return filmService.commonFilms(userId, friendId);
     }
 }
\ No newline at end of file
@@ -21,13 +21,13 @@ public class GenreController {
 
     @GetMapping()
     public List<Genre> findAll() {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /genres");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /genres");
         return genreService.findAll();
     }
 
     @GetMapping("/{id}")
     public Genre findById(@PathVariable Integer id) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /genres/{}", id);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /genres/{}", id);
         return genreService.findById(id);
     }
 }
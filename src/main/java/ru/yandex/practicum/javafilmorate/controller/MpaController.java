@@ -20,13 +20,13 @@ public class MpaController {
 
     @GetMapping()
     public List<Mpa> findAll() {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /mpa");
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /mpa");
         return mpaService.findAll();
     }
 
     @GetMapping("/{id}")
     public Mpa findById(@PathVariable Integer id) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /genres/{}", id);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /genres/{}", id);
         return mpaService.findById(id);
     }
 }
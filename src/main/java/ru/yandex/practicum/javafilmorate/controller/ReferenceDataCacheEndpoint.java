@@ -0,0 +1,28 @@
+package ru.yandex.practicum.javafilmorate.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
+
+import java.util.Map;
+
+@Component
+@AllArgsConstructor
+@Endpoint(id = "referencedata")
+public class ReferenceDataCacheEndpoint {
+    private final ReferenceDataCache referenceDataCache;
+
+    @ReadOperation
+    public Map<String, Map<String, Long>> statistics() {
+        return referenceDataCache.getStatistics();
+    }
+
+    /* Справочники, изменённые в обход приложения (миграцией или вручную), перечитываются явно */
+    @WriteOperation
+    public void reload() {
+        referenceDataCache.reload();
+    }
+}
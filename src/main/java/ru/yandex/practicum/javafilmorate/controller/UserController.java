@@ -1,89 +1,132 @@
 package ru.yandex.practicum.javafilmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.javafilmorate.model.Event;
 import ru.yandex.practicum.javafilmorate.model.Film;
 import ru.yandex.practicum.javafilmorate.model.User;
 import ru.yandex.practicum.javafilmorate.service.EventService;
 import ru.yandex.practicum.javafilmorate.service.UserService;
+import ru.yandex.practicum.javafilmorate.utils.NdjsonUtil;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/users")
 @AllArgsConstructor
+@Validated
 public class UserController {
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+
     private final UserService userService;
     private final EventService eventService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<User> findAll() {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users");
-        return userService.findAll();
+    public List<User> findAll(@RequestParam(required = false) @Min(0) Integer afterId,
+                              @RequestParam(required = false) @Min(1) @Max(MAX_PAGE_LIMIT) Integer limit) {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users params = {afterId, limit}");
+        if (afterId == null && limit == null) {
+            return userService.findAll();
+        }
+        return userService.findAll(afterId == null ? 0 : afterId, limit == null ? DEFAULT_PAGE_LIMIT : limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users в формате NDJSON");
+        return out -> userService.streamAll(user -> NdjsonUtil.writeLine(objectMapper, out, user));
     }
 
     @GetMapping("/{id}")
     public User findById(@PathVariable int id) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}", id);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}", id);
         return userService.findById(id);
     }
 
     @GetMapping("/{id}/friends")
     public List<User> getUserFriends(@PathVariable int id) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}/friends", id);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}/friends", id);
         return userService.getUserFriends(id);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}/friends/common/{}", id, otherId);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}/friends/common/{}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id,
+                                           @RequestParam(defaultValue = "10") @Min(1) @Max(100) int limit) {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /users/{}/friends/suggestions params = {limit}", id);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
     @PostMapping
     public User addUser(@Valid @RequestBody User user) {
-        log.info("КОНТРОЛЛЕР: POST-запрос по эндпоинту /users");
+        log.debug("КОНТРОЛЛЕР: POST-запрос по эндпоинту /users");
         return userService.addUser(user);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable int id, @PathVariable int friendId) {
-        log.info("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /users/{}/friends/{}", id, friendId);
+        log.debug("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /users/{}/friends/{}", id, friendId);
         userService.addFriend(id, friendId);
     }
 
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
-        log.info("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /users");
+        log.debug("КОНТРОЛЛЕР: PUT-запрос по эндпоинту /users");
         return userService.updateUser(user);
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
     public void deleteFriend(@PathVariable int id, @PathVariable int friendId) {
-        log.info("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /users/{}/friends/{}", id, friendId);
+        log.debug("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /users/{}/friends/{}", id, friendId);
         userService.deleteFriend(id, friendId);
     }
 
     @DeleteMapping("/{userId}")
     public void deleteUser(@PathVariable int userId) {
-        log.info("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /{}", userId);
+        log.debug("КОНТРОЛЛЕР: DELETE-запрос по эндпоинту /{}", userId);
         userService.deleteUser(userId);
     }
 
 
     @GetMapping("/{userId}/recommendations")
     public List<Film> findRecomendationsForUser(@PathVariable("userId") Integer userId) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /{}/recommendations", userId);
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /{}/recommendations", userId);
         return userService.findRecommendationsForUser(userId);
     }
 
     @GetMapping("/{userId}/feed")
-    public List<Event> getUserFeed(@PathVariable int userId) {
-        log.info("КОНТРОЛЛЕР: GET-запрос по эндпоинту /{}/feed", userId);
-        return eventService.getUserFeed(userId);
+    public List<Event> getUserFeed(@PathVariable int userId,
+                                   @RequestParam(required = false) @Min(0) Integer sinceEventId,
+                                   @RequestParam(required = false) @Min(1) @Max(MAX_PAGE_LIMIT) Integer limit) {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /{}/feed params = {sinceEventId, limit}", userId);
+        if (sinceEventId == null && limit == null) {
+            return eventService.getUserFeed(userId);
+        }
+        return eventService.getUserFeed(userId, sinceEventId == null ? 0 : sinceEventId,
+                limit == null ? DEFAULT_PAGE_LIMIT : limit);
+    }
+
+    @GetMapping("/{userId}/feed/friends")
+    public List<Event> getFriendsFeed(@PathVariable int userId,
+                                      @RequestParam(required = false) @Min(1) Integer beforeEventId,
+                                      @RequestParam(defaultValue = "20") @Min(1) @Max(MAX_PAGE_LIMIT) int limit) {
+        log.debug("КОНТРОЛЛЕР: GET-запрос по эндпоинту /{}/feed/friends params = {beforeEventId, limit}", userId);
+        return eventService.getFriendsFeed(userId, beforeEventId == null ? Integer.MAX_VALUE : beforeEventId, limit);
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.javafilmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/* Итог HTTP-запроса: число SQL-запросов в метрике по шаблону адреса и одна строка журнала
+ * со строками хранилищ, запросами и временем вместо журналирования каждого вызова */
+@Slf4j
+@Component
+public class RequestStatisticsFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    public RequestStatisticsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        SqlQueryCounter.start();
+        StorageMetricsAspect.startRowCount();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int queries = SqlQueryCounter.stop();
+            long rows = StorageMetricsAspect.stopRowCount();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            DistributionSummary.builder("filmorate.http.sql.queries")
+                    .description("SQL-запросов на HTTP-запрос")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(1000.0)
+                    .register(meterRegistry)
+                    .record(queries);
+            if (log.isInfoEnabled()) {
+                log.info("ЗАПРОС: method={} uri={} status={} rows={} queries={} elapsedMs={}", request.getMethod(),
+                        uri, response.getStatus(), rows, queries, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.javafilmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/* Время выполнения и число возвращённых строк для каждого метода интерфейсов storage.dao */
+@Aspect
+@Component
+public class StorageMetricsAspect {
+    /* Глубина вложенности вызовов хранилищ и строки внешних вызовов в рамках HTTP-запроса */
+    private static final ThreadLocal<long[]> REQUEST_ROWS = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<Method, DistributionSummary> rows = new ConcurrentHashMap<>();
+
+    public StorageMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static void startRowCount() {
+        REQUEST_ROWS.set(new long[2]);
+    }
+
+    public static long stopRowCount() {
+        long[] counter = REQUEST_ROWS.get();
+        REQUEST_ROWS.remove();
+        return counter == null ? 0 : counter[1];
+    }
+
+    @Around("execution(* ru.yandex.practicum.javafilmorate.storage.dao.*Storage.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        String storage = storageName(signature.getDeclaringType());
+        Method method = signature.getMethod();
+        long[] requestRows = REQUEST_ROWS.get();
+        if (requestRows != null) {
+            requestRows[0]++;
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            timer(storage, method, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } finally {
+            if (requestRows != null) {
+                requestRows[0]--;
+            }
+        }
+        timers.computeIfAbsent(method, k -> timer(storage, method, "none"))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (method.getReturnType() != void.class) {
+            long count = recordRows(method, storage, result);
+            /* Строки вложенных вызовов уже входят в результат внешнего */
+            if (requestRows != null && requestRows[0] == 0) {
+                requestRows[1] += count;
+            }
+        }
+        return result;
+    }
+
+    private Timer timer(String storage, Method method, String exception) {
+        return Timer.builder("filmorate.storage")
+                .description("Время выполнения методов хранилищ")
+                .tag("storage", storage)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private long recordRows(Method method, String storage, Object result) {
+        long count;
+        if (result instanceof Collection) {
+            count = ((Collection<?>) result).size();
+        } else if (result instanceof Map) {
+            count = ((Map<?, ?>) result).size();
+        } else if (result instanceof Optional) {
+            count = ((Optional<?>) result).isPresent() ? 1 : 0;
+        } else if (result instanceof Number || result instanceof Boolean) {
+            return 0;
+        } else {
+            count = result == null ? 0 : 1;
+        }
+        rows.computeIfAbsent(method, k -> DistributionSummary.builder("filmorate.storage.rows")
+                        .description("Число строк, возвращённых методами хранилищ")
+                        .tag("storage", storage)
+                        .tag("method", method.getName())
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(100_000.0)
+                        .register(meterRegistry))
+                .record(count);
+        return count;
+    }
+
+    /* Имя интерфейса хранилища, а не реализации или прокси */
+    private static String storageName(Class<?> type) {
+        for (Class<?> candidate = type; candidate != null; candidate = candidate.getSuperclass()) {
+            for (Class<?> iface : candidate.getInterfaces()) {
+                if (iface.getPackageName().endsWith(".storage.dao")) {
+                    return iface.getSimpleName();
+                }
+            }
+        }
+        return type.getSimpleName();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.javafilmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkImportError {
+    private final int index;
+    private final String message;
+}
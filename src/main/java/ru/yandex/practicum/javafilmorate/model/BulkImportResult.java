@@ -0,0 +1,24 @@
+package ru.yandex.practicum.javafilmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkImportResult {
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private int imported;
+    private int failed;
+    private long elapsedMs;
+    private double recordsPerSecond;
+    private final List<BulkImportError> errors = new ArrayList<>();
+
+    public void addError(int index, String message) {
+        /* Ошибки сверх лимита только подсчитываются, чтобы ответ не рос вместе с файлом */
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new BulkImportError(index, message));
+        }
+        failed++;
+    }
+}
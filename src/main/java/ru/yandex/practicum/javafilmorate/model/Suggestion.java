@@ -0,0 +1,12 @@
+package ru.yandex.practicum.javafilmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class Suggestion {
+    private final SuggestionType type;
+    private final int id;
+    private final String name;
+}
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.javafilmorate.model;
+
+public enum SuggestionType {
+    FILM,
+    DIRECTOR;
+}
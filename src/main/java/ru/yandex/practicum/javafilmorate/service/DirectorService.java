@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.javafilmorate.model.Director;
 import ru.yandex.practicum.javafilmorate.storage.dao.DirectorStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmSearchIndex;
 
 import java.util.List;
 
@@ -14,29 +15,35 @@ import java.util.List;
 public class DirectorService {
 
     private final DirectorStorage directorStorage;
+    private final FilmSearchIndex searchIndex;
 
     public List<Director> findAll() {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка режиссёров");
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка режиссёров");
         return directorStorage.findAll();
     }
 
     public Director findById(Integer directorId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение режиссёра с id {}", directorId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение режиссёра с id {}", directorId);
         return directorStorage.findById(directorId);
     }
 
     public Director addDirector(Director director) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление режиссёра {}", director.getName());
-        return directorStorage.addDirector(director);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление режиссёра {}", director.getName());
+        Director addedDirector = directorStorage.addDirector(director);
+        searchIndex.putDirector(addedDirector);
+        return addedDirector;
     }
 
     public Director updateDirector(Director director) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на обновление режиссёра с id {}", director.getId());
-        return directorStorage.updateDirector(director);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на обновление режиссёра с id {}", director.getId());
+        Director updatedDirector = directorStorage.updateDirector(director);
+        searchIndex.putDirector(updatedDirector);
+        return updatedDirector;
     }
 
     public void deleteDirector(Integer directorId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на удаление режиссёра с id {}", directorId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление режиссёра с id {}", directorId);
         directorStorage.deleteDirector(directorId);
+        searchIndex.removeDirector(directorId);
     }
 }
@@ -1,34 +1,221 @@
 package ru.yandex.practicum.javafilmorate.service;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.javafilmorate.model.Event;
 import ru.yandex.practicum.javafilmorate.storage.dao.EventStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
 import ru.yandex.practicum.javafilmorate.utils.CheckUtil;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
-@AllArgsConstructor
 public class EventService {
+    private final EventStorage eventStorage;
+    private final UserStorage userStorage;
+    private final FriendFeedService friendFeedService;
+    private final int queueCapacity;
+    private final int flushSize;
+    private final BackpressurePolicy backpressurePolicy;
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    /* Число ещё не записанных событий по автору: счётчик уменьшается только после записи в базу */
+    private final Map<Integer, Integer> pendingByUser = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private EventStorage eventStorage;
-    private UserStorage userStorage;
+    public EventService(EventStorage eventStorage, UserStorage userStorage, FriendFeedService friendFeedService,
+                        @Value("${filmorate.events.queue-capacity:10000}") int queueCapacity,
+                        @Value("${filmorate.events.flush-size:500}") int flushSize,
+                        @Value("${filmorate.events.flush-interval-ms:200}") long flushIntervalMs,
+                        @Value("${filmorate.events.backpressure:CALLER_RUNS}") BackpressurePolicy backpressurePolicy) {
+        this.eventStorage = eventStorage;
+        this.userStorage = userStorage;
+        this.friendFeedService = friendFeedService;
+        this.queueCapacity = queueCapacity;
+        this.flushSize = flushSize;
+        this.backpressurePolicy = backpressurePolicy;
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
 
     public void add(Event event) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление event userId={}", event.getUserId());
-        eventStorage.add(event);
+        log.debug("СЕРВИС: Постановка в очередь event userId={}", event.getUserId());
+        if (queueSize.incrementAndGet() > queueCapacity) {
+            queueSize.decrementAndGet();
+            handleOverflow(event);
+            return;
+        }
+        pendingByUser.merge(event.getUserId(), 1, Integer::sum);
+        queue.offer(event);
+        if (queueSize.get() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::flushSafely);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+    }
+
+    /* Пакет событий пишется сразу, минуя очередь: сначала дописываются ранее поставленные в очередь события */
+    public void addAll(List<Event> events) {
+        log.debug("СЕРВИС: Пакетная запись {} events", events.size());
+        flushLock.lock();
+        try {
+            flush();
+            for (int from = 0; from < events.size(); from += flushSize) {
+                write(events.subList(from, Math.min(from + flushSize, events.size())));
+            }
+        } finally {
+            flushLock.unlock();
+        }
     }
 
     public List<Event> getUserFeed(int userId) {
         CheckUtil.checkNotFound(userStorage.findById(userId));
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение ленты user с Id={}", userId);
+        flushPendingOf(userId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение ленты user с Id={}", userId);
         return eventStorage.getUserEvents(userId);
     }
 
+    public List<Event> getUserFeed(int userId, int sinceEventId, int limit) {
+        CheckUtil.checkNotFound(userStorage.findById(userId));
+        flushPendingOf(userId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение {} событий ленты user с Id={} после event с Id={}",
+                limit, userId, sinceEventId);
+        return eventStorage.getUserEvents(userId, sinceEventId, limit);
+    }
 
-}
+    /* События друзей попадают в ленту с фоновой записью, не позже интервала записи. Блокировка берётся только
+     * для построения ленты, чтобы событие, записанное между чтением из базы и публикацией ленты, не потерялось */
+    public List<Event> getFriendsFeed(int userId, int beforeEventId, int limit) {
+        CheckUtil.checkNotFound(userStorage.findById(userId));
+        if (!friendFeedService.isMaterialized(userId)) {
+            flushLock.lock();
+            try {
+                friendFeedService.materialize(userId);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        log.debug("СЕРВИС: Получение {} событий друзей user с Id={} до event с Id={}", limit, userId, beforeEventId);
+        return friendFeedService.getFeed(userId, beforeEventId, limit);
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<Event> batch = new ArrayList<>(Math.min(flushSize, queueSize.get()));
+            Event event;
+            while ((event = queue.poll()) != null) {
+                queueSize.decrementAndGet();
+                batch.add(event);
+                if (batch.size() == flushSize) {
+                    writePending(batch);
+                    batch = new ArrayList<>(flushSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                writePending(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("СЕРВИС: Поток записи событий не завершился, оставшиеся события записываются при остановке");
+        }
+        flush();
+    }
 
+    private void handleOverflow(Event event) {
+        if (backpressurePolicy == BackpressurePolicy.DROP) {
+            log.warn("СЕРВИС: Очередь событий переполнена, event userId={} отброшен", event.getUserId());
+            return;
+        }
+        /* CALLER_RUNS: поток запроса сам освобождает очередь и записывает событие, сохраняя порядок */
+        flushLock.lock();
+        try {
+            flush();
+            write(List.of(event));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /* Пользователь видит свои действия в своей ленте: чтение ждёт записи, только если в очереди есть его события.
+     * Ожидание ограничено одной записью очереди, размер которой не больше filmorate.events.queue-capacity */
+    private void flushPendingOf(int userId) {
+        if (pendingByUser.containsKey(userId)) {
+            flush();
+        }
+    }
+
+    private void writePending(List<Event> batch) {
+        try {
+            write(batch);
+        } finally {
+            for (Event event : batch) {
+                pendingByUser.computeIfPresent(event.getUserId(),
+                        (userId, pending) -> pending == 1 ? null : pending - 1);
+            }
+        }
+    }
+
+    private void write(List<Event> batch) {
+        List<Event> written = batch;
+        try {
+            eventStorage.addAll(batch);
+        } catch (DataAccessException e) {
+            /* Например, пользователь удалён до записи его событий: пишем по одному и пропускаем ошибочные */
+            log.warn("СЕРВИС: Не удалось записать пакет из {} events: {}", batch.size(), e.getMessage());
+            written = new ArrayList<>(batch.size());
+            for (Event event : batch) {
+                try {
+                    written.add(eventStorage.add(event));
+                } catch (DataAccessException ex) {
+                    log.warn("СЕРВИС: Пропущен event userId={}: {}", event.getUserId(), ex.getMessage());
+                }
+            }
+        }
+        try {
+            friendFeedService.fanOut(written);
+        } catch (DataAccessException e) {
+            log.warn("СЕРВИС: Не удалось разложить события по лентам друзей: {}", e.getMessage());
+            friendFeedService.invalidateAll();
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("СЕРВИС: Ошибка фоновой записи событий", e);
+        }
+    }
+
+    public enum BackpressurePolicy {
+        CALLER_RUNS,
+        DROP
+    }
+}
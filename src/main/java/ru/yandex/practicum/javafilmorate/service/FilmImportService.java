@@ -0,0 +1,259 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.javafilmorate.model.*;
+import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
+import ru.yandex.practicum.javafilmorate.utils.InvalidDataException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.ValidationException;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/* Пакетная загрузка фильмов и оценок: JSON-массив читается потоково по одному элементу,
+ * проверенные записи сохраняются пакетами, каждый пакет в своей транзакции */
+@Slf4j
+@Service
+public class FilmImportService {
+    private final ObjectMapper objectMapper;
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final FilmStorage filmStorage;
+    private final MarkStorage markStorage;
+    private final UserStorage userStorage;
+    private final EventService eventService;
+    private final RecommendationService recommendationService;
+    private final ReferenceDataCache referenceDataCache;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final int chunkSize;
+
+    public FilmImportService(ObjectMapper objectMapper, FilmStorage filmStorage, MarkStorage markStorage,
+                             UserStorage userStorage, EventService eventService, RecommendationService recommendationService,
+                             ReferenceDataCache referenceDataCache, FilmPopularityIndex popularityIndex,
+                             FilmSearchIndex searchIndex,
+                             @Value("${filmorate.import.chunk-size:500}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.filmStorage = filmStorage;
+        this.markStorage = markStorage;
+        this.userStorage = userStorage;
+        this.eventService = eventService;
+        this.recommendationService = recommendationService;
+        this.referenceDataCache = referenceDataCache;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkImportResult importFilms(InputStream json) {
+        log.info("СЕРВИС: Пакетная загрузка фильмов пакетами по {}", chunkSize);
+        /* Пакет записывается в базу и в рейтинг популярности без пересечения с его перезагрузкой */
+        return importArray(json, Film.class, this::validateFilm, (chunk, chunkIndexes, result) ->
+                popularityIndex.runUpdate(() -> writeFilms(chunk, chunkIndexes, result)));
+    }
+
+    public BulkImportResult importMarks(InputStream json) {
+        log.info("СЕРВИС: Пакетная загрузка оценок пакетами по {}", chunkSize);
+        return importArray(json, Mark.class, this::validateBean, (chunk, chunkIndexes, result) ->
+                popularityIndex.runUpdate(() -> writeMarks(chunk, chunkIndexes, result)));
+    }
+
+    private <T> BulkImportResult importArray(InputStream json, Class<T> type, Function<T, String> validation,
+                                             ChunkWriter<T> writer) {
+        long start = System.nanoTime();
+        BulkImportResult result = new BulkImportResult();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidDataException("Ожидается JSON-массив");
+            }
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                /* В памяти только текущий элемент массива, а не весь документ */
+                JsonNode node = parser.readValueAsTree();
+                String error;
+                try {
+                    T item = objectMapper.treeToValue(node, type);
+                    error = validation.apply(item);
+                    if (error == null) {
+                        chunk.add(item);
+                        chunkIndexes.add(index);
+                    }
+                } catch (JsonProcessingException e) {
+                    error = e.getOriginalMessage();
+                } catch (ValidationException e) {
+                    error = "Не удалось проверить запись: " + e.getMessage();
+                }
+                if (error != null) {
+                    result.addError(index, error);
+                }
+                if (chunk.size() == chunkSize) {
+                    flushChunk(chunk, chunkIndexes, writer, result);
+                }
+                index++;
+            }
+        } catch (JsonProcessingException e) {
+            flushChunk(chunk, chunkIndexes, writer, result);
+            throw new InvalidDataException("Некорректный JSON после " + (result.getImported() + result.getFailed()) +
+                    " записей, загружено " + result.getImported() + ": " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new InvalidDataException("Не удалось прочитать тело запроса: " + e.getMessage());
+        }
+        flushChunk(chunk, chunkIndexes, writer, result);
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        result.setElapsedMs(elapsedNanos / 1_000_000);
+        result.setRecordsPerSecond(result.getImported() * 1e9 / elapsedNanos);
+        log.info("СЕРВИС: Загружено {} записей, отклонено {}, {} записей в секунду", result.getImported(),
+                result.getFailed(), Math.round(result.getRecordsPerSecond()));
+        return result;
+    }
+
+    private <T> void flushChunk(List<T> chunk, List<Integer> chunkIndexes, ChunkWriter<T> writer,
+                                BulkImportResult result) {
+        if (!chunk.isEmpty()) {
+            writer.write(chunk, chunkIndexes, result);
+            chunk.clear();
+            chunkIndexes.clear();
+        }
+    }
+
+    private <T> String validateBean(T item) {
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private String validateFilm(Film film) {
+        String error = validateBean(film);
+        if (error != null) {
+            return error;
+        }
+        if (film.getMpa() == null || referenceDataCache.getMpa(film.getMpa().getId()).isEmpty()) {
+            return "Рейтинг MPA не указан или не зарегистрирован в системе";
+        }
+        for (Genre genre : film.getGenres()) {
+            if (referenceDataCache.getGenre(genre.getId()).isEmpty()) {
+                return "Жанр с id " + genre.getId() + " не зарегистрирован в системе";
+            }
+        }
+        for (Director director : film.getDirectors()) {
+            if (referenceDataCache.getDirector(director.getId()).isEmpty()) {
+                return "Режиссёр с id " + director.getId() + " не зарегистрирован в системе";
+            }
+        }
+        return null;
+    }
+
+    private void writeFilms(List<Film> chunk, List<Integer> chunkIndexes, BulkImportResult result) {
+        try {
+            filmStorage.addFilms(chunk);
+            onFilmsImported(chunk, result);
+        } catch (DataAccessException e) {
+            /* Пакет откатился целиком: повторяем по одному фильму, чтобы найти записи с ошибкой */
+            log.info("СЕРВИС: Пакет из {} фильмов отклонён базой, повторная запись по одному", chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Film film = chunk.get(i);
+                try {
+                    film.setId(null);
+                    filmStorage.addFilms(List.of(film));
+                    onFilmsImported(List.of(film), result);
+                } catch (DataAccessException filmException) {
+                    result.addError(chunkIndexes.get(i), filmException.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void onFilmsImported(List<Film> films, BulkImportResult result) {
+        for (Film film : films) {
+            popularityIndex.putFilm(film);
+            searchIndex.putFilm(film);
+        }
+        result.setImported(result.getImported() + films.size());
+    }
+
+    private void writeMarks(List<Mark> chunk, List<Integer> chunkIndexes, BulkImportResult result) {
+        Set<Integer> filmIds = filmStorage.getRegisteredFilmIds(
+                chunk.stream().map(Mark::getFilmId).collect(Collectors.toSet()));
+        Set<Integer> userIds = userStorage.getRegisteredUserIds(
+                chunk.stream().map(Mark::getUserId).collect(Collectors.toSet()));
+        /* Повторная оценка той же пары в пакете заменяет предыдущую */
+        Map<List<Integer>, Mark> marks = new LinkedHashMap<>();
+        List<Integer> acceptedIndexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Mark mark = chunk.get(i);
+            if (!filmIds.contains(mark.getFilmId())) {
+                result.addError(chunkIndexes.get(i), "Фильм с id " + mark.getFilmId() +
+                        " не зарегистрирован в системе");
+            } else if (!userIds.contains(mark.getUserId())) {
+                result.addError(chunkIndexes.get(i), "Пользователь с id " + mark.getUserId() +
+                        " не зарегистрирован в системе");
+            } else {
+                marks.put(List.of(mark.getFilmId(), mark.getUserId()), mark);
+                acceptedIndexes.add(chunkIndexes.get(i));
+            }
+        }
+        if (marks.isEmpty()) {
+            return;
+        }
+        List<Mark> merged = new ArrayList<>(marks.values());
+        List<Mark> previous;
+        try {
+            previous = markStorage.mergeMarks(merged);
+        } catch (DataAccessException e) {
+            /* Например, фильм удалён между проверкой и записью: пакет откатился целиком */
+            log.warn("СЕРВИС: Не удалось записать пакет из {} оценок: {}", merged.size(), e.getMessage());
+            acceptedIndexes.forEach(index -> result.addError(index, e.getMostSpecificCause().getMessage()));
+            return;
+        }
+        /* Повторы пары в пакете записываются одной оценкой */
+        result.setImported(result.getImported() + merged.size());
+        /* Производные данные обновляются один раз на пакет */
+        Map<Integer, Integer> ratingDeltas = new HashMap<>();
+        merged.forEach(mark -> ratingDeltas.merge(mark.getFilmId(), mark.getRating(), Integer::sum));
+        previous.forEach(mark -> ratingDeltas.merge(mark.getFilmId(), -mark.getRating(), Integer::sum));
+        ratingDeltas.forEach(popularityIndex::addRating);
+        recommendationService.invalidateAll();
+        /* Новая пара попадает в ленту как добавление, изменённая прежняя оценка — как обновление,
+         * повтор прежней оценки событий не создаёт */
+        Map<List<Integer>, Integer> previousRatings = new HashMap<>();
+        previous.forEach(mark -> previousRatings.put(List.of(mark.getFilmId(), mark.getUserId()), mark.getRating()));
+        List<Event> events = new ArrayList<>(merged.size());
+        for (Mark mark : merged) {
+            Integer previousRating = previousRatings.get(List.of(mark.getFilmId(), mark.getUserId()));
+            if (previousRating == null) {
+                events.add(new Event(EventType.LIKE, OperationType.ADD, mark.getFilmId(), mark.getUserId()));
+            } else if (!previousRating.equals(mark.getRating())) {
+                events.add(new Event(EventType.LIKE, OperationType.UPDATE, mark.getFilmId(), mark.getUserId()));
+            }
+        }
+        eventService.addAll(events);
+    }
+
+    private interface ChunkWriter<T> {
+        void write(List<T> chunk, List<Integer> chunkIndexes, BulkImportResult result);
+    }
+}
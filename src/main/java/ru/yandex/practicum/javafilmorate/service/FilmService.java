@@ -6,99 +6,174 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.javafilmorate.model.*;
 import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.UserMarksIndex;
 import ru.yandex.practicum.javafilmorate.utils.CheckUtil;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 import javax.validation.ConstraintViolationException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @AllArgsConstructor
 public class FilmService {
+    private static final Set<String> SEARCH_FIELDS = Set.of("title", "director");
     private final FilmStorage filmStorage;
     private final MarkStorage markStorage;
     private final EventService eventService;
+    private final FilmPopularityIndex popularityIndex;
+    private final RecommendationService recommendationService;
+    private final FilmSearchIndex searchIndex;
+    private final UserMarksIndex userMarksIndex;
+    private final UserStorage userStorage;
 
     public Film findById(Integer filmId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение фильма по id {}", filmId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение фильма по id {}", filmId);
         return filmStorage.findById(filmId);
     }
 
     public Film addFilm(Film film) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление фильма с id {}", film.getId());
-        return filmStorage.addFilm(film);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление фильма с id {}", film.getId());
+        Film addedFilm = popularityIndex.update(() -> {
+            Film added = filmStorage.addFilm(film);
+            popularityIndex.putFilm(added);
+            return added;
+        });
+        searchIndex.putFilm(addedFilm);
+        return addedFilm;
     }
 
     public Film updateFilm(Film film) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на обновление фильма с id {}", film.getId());
-        return filmStorage.updateFilm(film);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на обновление фильма с id {}", film.getId());
+        Film updatedFilm = popularityIndex.update(() -> {
+            Film updated = filmStorage.updateFilm(film);
+            popularityIndex.putFilm(updated);
+            return updated;
+        });
+        searchIndex.putFilm(updatedFilm);
+        return updatedFilm;
     }
 
     public List<Film> findAll() {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка фильмов");
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка фильмов");
         return filmStorage.findAll();
     }
 
+    public List<Film> findAll(int afterId, int limit) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение {} фильмов с id больше {}", limit, afterId);
+        return filmStorage.findAll(afterId, limit);
+    }
+
+    public void streamAll(Consumer<Film> action) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на потоковую выгрузку фильмов");
+        filmStorage.streamAll(action);
+    }
+
     public void addMark(Integer filmId, Integer userId, Integer rating) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление отметки \"mark\" " +
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление отметки \"mark\" " +
                 "фильму с id {} от пользователя с id {} ", filmId, userId);
-        try {
-            markStorage.addMark(new Mark(filmId, userId, rating));
-        } catch (ConstraintViolationException e) {
-            throw new UnregisteredDataException("Пользователь с Id: " + userId + " уже дал оценку фильму с ID " + filmId);
-        }
+        popularityIndex.runUpdate(() -> {
+            try {
+                markStorage.addMark(new Mark(filmId, userId, rating));
+            } catch (ConstraintViolationException e) {
+                throw new UnregisteredDataException("Пользователь с Id: " + userId + " уже дал оценку фильму с ID " +
+                        filmId);
+            }
+            popularityIndex.addRating(filmId, rating);
+        });
+        recommendationService.onMarkChanged(filmId, userId);
         eventService.add(new Event(EventType.LIKE, OperationType.ADD, filmId, userId));
     }
 
     public void deleteMark(Integer filmId, Integer userId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на удаление отметки \"mark\" " +
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление отметки \"mark\" " +
                 "фильму с id {} от пользователя с id {} ", filmId, userId);
-        markStorage.deleteMark(filmId, userId);
+        Mark deletedMark = popularityIndex.update(() -> {
+            Mark deleted = markStorage.deleteMark(filmId, userId);
+            if (deleted != null) {
+                popularityIndex.addRating(filmId, -deleted.getRating());
+            }
+            return deleted;
+        });
+        if (deletedMark != null) {
+            recommendationService.onMarkChanged(filmId, userId);
+        }
         eventService.add(new Event(EventType.LIKE, OperationType.REMOVE, filmId, userId));
     }
 
     public List<Film> getPopularFilms(Integer limit) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов", limit);
-        return filmStorage.getPopularFilms(limit);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов", limit);
+        return filmStorage.findByIds(popularityIndex.getPopular(limit));
     }
 
     public void deleteFilm(int filmId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на удаление фильма с Id={}.", filmId);
-        CheckUtil.checkNotFound(filmStorage.deleteFilm(filmId), " фильм с Id=" + filmId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление фильма с Id={}.", filmId);
+        popularityIndex.runUpdate(() -> {
+            CheckUtil.checkNotFound(filmStorage.deleteFilm(filmId), " фильм с Id=" + filmId);
+            popularityIndex.removeFilm(filmId);
+        });
+        searchIndex.removeFilm(filmId);
+        userMarksIndex.removeFilm(filmId);
+        recommendationService.invalidateAll();
     }
 
     public List<Film> commonFilms(int userId, int friendId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка общих фильмов пользователя {} " +
-                "и его друга {}.", userId, friendId);
-        return filmStorage.commonFilms(userId, friendId);
+        log.debug("СЕРВИС: Получение по индексу оценок списка общих фильмов пользователя {} и его друга {}.",
+                userId, friendId);
+        Set<Integer> registeredIds = userStorage.getRegisteredUserIds(List.of(userId, friendId));
+        for (int id : List.of(userId, friendId)) {
+            if (!registeredIds.contains(id)) {
+                throw new UnregisteredDataException("Пользователь с id " + id + " не зарегистрирован в системе");
+            }
+        }
+        return filmStorage.findByIds(popularityIndex.sortByPopularity(
+                userMarksIndex.commonFilmIds(userId, friendId)));
     }
 
     public List<Film> getPopularByGenre(int count, int genreId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов в жанре " +
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов в жанре " +
                 "{}.", count, genreId);
-        return filmStorage.getPopularByGenre(count, genreId);
+        return filmStorage.findByIds(popularityIndex.getPopularByGenre(count, genreId));
     }
 
     public List<Film> getPopularByYear(int count, int year) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов," +
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов," +
                 " выпущенных в {} году.", count, year);
-        return filmStorage.getPopularByYear(count, year);
+        return filmStorage.findByIds(popularityIndex.getPopularByYear(count, year));
     }
 
     public List<Film> getPopularByGenreAndYear(int count, int genreId, int year) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов в жанре " +
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка {} самых популярных фильмов в жанре " +
                 "{}, выпущенных в {} году.", count, genreId, year);
-        return filmStorage.getPopularByGenreAndYear(count, genreId, year);
+        return filmStorage.findByIds(popularityIndex.getPopularByGenreAndYear(count, genreId, year));
     }
 
     public List<Film> searchBySubstring(String query, String by) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка всех фильмов, содержащих строку {}", query);
-        return filmStorage.searchBySubstring(query, by);
+        log.debug("СЕРВИС: Поиск по индексу фильмов, содержащих строку {} в полях {}", query, by);
+        Set<String> fields = Arrays.stream(by.split(","))
+                .map(field -> field.trim().toLowerCase())
+                .collect(Collectors.toSet());
+        if (!SEARCH_FIELDS.containsAll(fields)) {
+            throw new UnregisteredDataException("Запрос поиска по параметру " + by + " не найден");
+        }
+        Set<Integer> filmIds = searchIndex.search(query, fields.contains("title"), fields.contains("director"));
+        return filmStorage.findPopularByIds(filmIds);
+    }
+
+    public List<Suggestion> suggest(String prefix, int count) {
+        log.debug("СЕРВИС: Получение {} подсказок для префикса {}", count, prefix);
+        return searchIndex.suggest(prefix, count, popularityIndex::getScore);
     }
 
     public List<Film> findDirectorFilmsByYearOrLikes(int directorId, String sortBy) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка фильмов режиссера с id {}, " +
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка фильмов режиссера с id {}, " +
                 "отсортированных по {}", directorId, sortBy);
         return filmStorage.findDirectorFilmsByYearOrLikes(directorId, sortBy);
     }
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.javafilmorate.model.Event;
+import ru.yandex.practicum.javafilmorate.storage.dao.EventStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.FriendStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/* Лента событий друзей: события обычных пользователей раскладываются по лентам подписчиков при записи,
+ * события пользователей с большим числом подписчиков дочитываются из базы при чтении */
+@Slf4j
+@Service
+public class FriendFeedService {
+    private final EventStorage eventStorage;
+    private final FriendStorage friendStorage;
+    private final int timelineCapacity;
+    private final int maxTimelines;
+    private final int celebrityFollowers;
+    private final Map<Integer, Timeline> timelines = new ConcurrentHashMap<>();
+    private volatile Set<Integer> celebrities = Set.of();
+
+    public FriendFeedService(EventStorage eventStorage, FriendStorage friendStorage,
+                             @Value("${filmorate.feed.timeline-capacity:200}") int timelineCapacity,
+                             @Value("${filmorate.feed.max-timelines:100000}") int maxTimelines,
+                             @Value("${filmorate.feed.celebrity-followers:1000}") int celebrityFollowers) {
+        this.eventStorage = eventStorage;
+        this.friendStorage = friendStorage;
+        this.timelineCapacity = timelineCapacity;
+        this.maxTimelines = maxTimelines;
+        this.celebrityFollowers = celebrityFollowers;
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${filmorate.feed.celebrity-refresh-ms:600000}",
+            fixedDelayString = "${filmorate.feed.celebrity-refresh-ms:600000}")
+    public void refreshCelebrities() {
+        Set<Integer> loaded = friendStorage.getUsersWithFollowersOver(celebrityFollowers);
+        if (!loaded.equals(celebrities)) {
+            log.info("СЕРВИС: Пользователей с раздачей ленты при чтении: {}", loaded.size());
+            celebrities = Set.copyOf(loaded);
+            timelines.clear();
+        }
+    }
+
+    /* Вызывается единственным потоком записи событий после сохранения пакета */
+    public void fanOut(List<Event> events) {
+        Set<Integer> authorIds = events.stream()
+                .map(Event::getUserId)
+                .filter(userId -> !celebrities.contains(userId))
+                .collect(Collectors.toSet());
+        Map<Integer, List<Integer>> followers = friendStorage.getFollowerIds(authorIds);
+        Set<Integer> newCelebrities = followers.entrySet().stream()
+                .filter(entry -> entry.getValue().size() > celebrityFollowers)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (!newCelebrities.isEmpty()) {
+            log.info("СЕРВИС: Пользователи {} переведены на раздачу ленты при чтении", newCelebrities);
+            Set<Integer> updated = new HashSet<>(celebrities);
+            updated.addAll(newCelebrities);
+            celebrities = Set.copyOf(updated);
+            timelines.clear();
+        }
+        for (Event event : events) {
+            if (celebrities.contains(event.getUserId())) {
+                continue;
+            }
+            for (int followerId : followers.getOrDefault(event.getUserId(), List.of())) {
+                Timeline timeline = timelines.get(followerId);
+                if (timeline != null) {
+                    timeline.append(event);
+                }
+            }
+        }
+    }
+
+    public boolean isMaterialized(int userId) {
+        return timelines.containsKey(userId);
+    }
+
+    public void materialize(int userId) {
+        if (timelines.containsKey(userId) || timelines.size() >= maxTimelines) {
+            return;
+        }
+        List<Event> events = eventStorage.getFriendsEvents(userId, Integer.MAX_VALUE, timelineCapacity);
+        int[] friendIds = friendStorage.getFriendIds(userId).stream().mapToInt(Integer::intValue).toArray();
+        timelines.put(userId, new Timeline(timelineCapacity, friendIds, events));
+    }
+
+    public List<Event> getFeed(int userId, int beforeEventId, int limit) {
+        Timeline timeline = timelines.get(userId);
+        List<Event> pushed = timeline == null ? null : timeline.page(beforeEventId, limit);
+        if (pushed == null) {
+            return getFeedOnRead(userId, beforeEventId, limit);
+        }
+        Set<Integer> currentCelebrities = celebrities;
+        List<Integer> followedCelebrities = Arrays.stream(timeline.friendIds)
+                .filter(currentCelebrities::contains)
+                .boxed()
+                .collect(Collectors.toList());
+        if (followedCelebrities.isEmpty()) {
+            return pushed;
+        }
+        return merge(pushed, eventStorage.getUsersEvents(followedCelebrities, beforeEventId, limit), limit);
+    }
+
+    public List<Event> getFeedOnRead(int userId, int beforeEventId, int limit) {
+        return eventStorage.getFriendsEvents(userId, beforeEventId, limit);
+    }
+
+    public void invalidate(int userId) {
+        timelines.remove(userId);
+    }
+
+    public void invalidateAll() {
+        timelines.clear();
+    }
+
+    private List<Event> merge(List<Event> first, List<Event> second, int limit) {
+        List<Event> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            Event next;
+            if (j == second.size() || (i < first.size()
+                    && first.get(i).getEventId() >= second.get(j).getEventId())) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (merged.isEmpty() || merged.get(merged.size() - 1).getEventId() != next.getEventId()) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Timeline {
+        private final int capacity;
+        private final int[] friendIds;
+        /* События от новых к старым */
+        private final ArrayDeque<Event> events;
+        /* В ленте есть не все события друзей: старые вытеснены или не были загружены */
+        private boolean truncated;
+
+        private Timeline(int capacity, int[] friendIds, List<Event> events) {
+            this.capacity = capacity;
+            this.friendIds = friendIds;
+            this.events = new ArrayDeque<>(events);
+            this.truncated = events.size() >= capacity;
+        }
+
+        private synchronized void append(Event event) {
+            Event newest = events.peekFirst();
+            if (newest != null && newest.getEventId() >= event.getEventId()) {
+                return;
+            }
+            events.addFirst(event);
+            if (events.size() > capacity) {
+                events.removeLast();
+                truncated = true;
+            }
+        }
+
+        /* Возвращает null, если страница выходит за пределы хранимой части ленты */
+        private synchronized List<Event> page(int beforeEventId, int limit) {
+            List<Event> page = new ArrayList<>(Math.min(limit, events.size()));
+            for (Event event : events) {
+                if (page.size() == limit) {
+                    return page;
+                }
+                if (event.getEventId() < beforeEventId) {
+                    page.add(event);
+                }
+            }
+            return page.size() < limit && truncated ? null : page;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class RatingReconciliationJob {
+    private final MarkStorage markStorage;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Scheduled(cron = "${filmorate.ratings.reconcile-cron:0 0 4 * * *}")
+    public int reconcile() {
+        log.info("СЕРВИС: Запуск сверки агрегатов оценок фильмов");
+        int driftedFilms = markStorage.reconcileRatingAggregates();
+        if (driftedFilms > 0) {
+            log.warn("СЕРВИС: Исправлены агрегаты оценок у {} фильмов, рейтинг популярности перестраивается",
+                    driftedFilms);
+            popularityIndex.reload();
+        }
+        return driftedFilms;
+    }
+}
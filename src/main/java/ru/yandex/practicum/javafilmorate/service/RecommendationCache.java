@@ -0,0 +1,162 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+@Slf4j
+@Component
+public class RecommendationCache {
+    private static final int CHANGE_LOG_SIZE = 4096;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, Entry> entries;
+    /* Обратные индексы: по соседу и по оценённому фильму - пользователи, чьи рекомендации от них зависят */
+    private final Map<Integer, Set<Integer>> usersByNeighbour = new HashMap<>();
+    private final Map<Integer, Set<Integer>> usersByFilm = new HashMap<>();
+    /* Кольцевой журнал последних изменений оценок: результат, посчитанный с версии v, сохраняется, только если
+     * ни одно изменение после v не касается его соседей и фильмов. Версия - число изменений с запуска */
+    private final int[] changedFilmIds = new int[CHANGE_LOG_SIZE];
+    private final int[] changedUserIds = new int[CHANGE_LOG_SIZE];
+    private long version;
+    private long clearedAtVersion;
+
+    public RecommendationCache(@Value("${filmorate.recommendations.cache.max-size:10000}") int maxSize,
+                               @Value("${filmorate.recommendations.cache.ttl:PT10M}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > RecommendationCache.this.maxSize) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized int[] get(int userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt > ttlNanos) {
+            remove(userId);
+            return null;
+        }
+        return entry.filmIds;
+    }
+
+    public synchronized boolean contains(int userId) {
+        Entry entry = entries.get(userId);
+        return entry != null && System.nanoTime() - entry.createdAt <= ttlNanos;
+    }
+
+    public synchronized long version() {
+        return version;
+    }
+
+    /* neighbourIds и ratedFilmIds должны быть отсортированы */
+    public synchronized void put(int userId, int[] filmIds, int[] neighbourIds, int[] ratedFilmIds,
+                                 long computedAtVersion) {
+        if (isStale(userId, neighbourIds, ratedFilmIds, computedAtVersion)) {
+            return;
+        }
+        remove(userId);
+        Entry entry = new Entry(filmIds, neighbourIds, ratedFilmIds, System.nanoTime());
+        for (int neighbourId : neighbourIds) {
+            usersByNeighbour.computeIfAbsent(neighbourId, k -> new HashSet<>()).add(userId);
+        }
+        for (int filmId : ratedFilmIds) {
+            usersByFilm.computeIfAbsent(filmId, k -> new HashSet<>()).add(userId);
+        }
+        entries.put(userId, entry);
+    }
+
+    /* Оценка пользователя userId фильму filmId меняет рекомендации самого пользователя, тех, у кого он
+     * среди соседей, и тех, кто оценил этот фильм и может получить его в соседи */
+    public synchronized void invalidate(int filmId, int userId) {
+        int position = (int) (version % CHANGE_LOG_SIZE);
+        changedFilmIds[position] = filmId;
+        changedUserIds[position] = userId;
+        version++;
+        Set<Integer> affected = new HashSet<>();
+        affected.add(userId);
+        affected.addAll(usersByNeighbour.getOrDefault(userId, Set.of()));
+        affected.addAll(usersByFilm.getOrDefault(filmId, Set.of()));
+        int removed = 0;
+        for (int affectedId : affected) {
+            if (remove(affectedId)) {
+                removed++;
+            }
+        }
+        log.debug("СЕРВИС: Из кэша рекомендаций удалено {} записей после оценки фильма с id {}", removed, filmId);
+    }
+
+    public synchronized void invalidateAll() {
+        clearedAtVersion = ++version;
+        entries.clear();
+        usersByNeighbour.clear();
+        usersByFilm.clear();
+    }
+
+    private boolean isStale(int userId, int[] neighbourIds, int[] ratedFilmIds, long computedAtVersion) {
+        if (computedAtVersion < clearedAtVersion || version - computedAtVersion > CHANGE_LOG_SIZE) {
+            return true;
+        }
+        for (long change = computedAtVersion; change < version; change++) {
+            int position = (int) (change % CHANGE_LOG_SIZE);
+            if (changedUserIds[position] == userId
+                    || Arrays.binarySearch(neighbourIds, changedUserIds[position]) >= 0
+                    || Arrays.binarySearch(ratedFilmIds, changedFilmIds[position]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean remove(int userId) {
+        Entry entry = entries.remove(userId);
+        if (entry == null) {
+            return false;
+        }
+        unindex(userId, entry);
+        return true;
+    }
+
+    private void unindex(int userId, Entry entry) {
+        for (int neighbourId : entry.neighbourIds) {
+            removeFromIndex(usersByNeighbour, neighbourId, userId);
+        }
+        for (int filmId : entry.ratedFilmIds) {
+            removeFromIndex(usersByFilm, filmId, userId);
+        }
+    }
+
+    private static void removeFromIndex(Map<Integer, Set<Integer>> index, int key, int userId) {
+        Set<Integer> users = index.get(key);
+        if (users != null && users.remove(userId) && users.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static final class Entry {
+        private final int[] filmIds;
+        private final int[] neighbourIds;
+        private final int[] ratedFilmIds;
+        private final long createdAt;
+
+        private Entry(int[] filmIds, int[] neighbourIds, int[] ratedFilmIds, long createdAt) {
+            this.filmIds = filmIds;
+            this.neighbourIds = neighbourIds;
+            this.ratedFilmIds = ratedFilmIds;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.RatingMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class RecommendationService {
+    private static final int MIN_GOOD_FILM_RATING = 5;
+    private final MarkStorage markStorage;
+    private final FilmStorage filmStorage;
+    private final RecommendationCache recommendationCache;
+
+    public List<Film> findRecommendations(int requesterId) {
+        int[] filmIds = recommendationCache.get(requesterId);
+        if (filmIds == null) {
+            filmIds = computeRecommendations(requesterId);
+        } else {
+            log.debug("СЕРВИС: Рекомендации для пользователя с id {} получены из кэша", requesterId);
+        }
+        return filmStorage.findByIds(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
+    }
+
+    public void warmUp(int usersCount) {
+        int warmed = 0;
+        for (int userId : markStorage.getMostActiveUsers(usersCount)) {
+            if (!recommendationCache.contains(userId)) {
+                computeRecommendations(userId);
+                warmed++;
+            }
+        }
+        log.info("СЕРВИС: Предварительно рассчитаны рекомендации для {} пользователей", warmed);
+    }
+
+    public void onMarkChanged(int filmId, int userId) {
+        recommendationCache.invalidate(filmId, userId);
+    }
+
+    public void invalidateAll() {
+        recommendationCache.invalidateAll();
+    }
+
+    private int[] computeRecommendations(int requesterId) {
+        long version = recommendationCache.version();
+        RatingMatrix matrix = markStorage.getNeighbourhoodMatrix(requesterId);
+        int requesterRow = matrix.rowOf(requesterId);
+        if (requesterRow < 0) {
+            return new int[0];
+        }
+        int[] similarRows = findSimilarRows(matrix, requesterRow);
+        int[] filmIds = collectFilms(matrix, requesterRow, similarRows);
+        log.debug("СЕРВИС: Для пользователя с id {} найдено {} похожих пользователей и {} рекомендаций",
+                requesterId, similarRows.length, filmIds.length);
+        recommendationCache.put(requesterId, filmIds, matrix.userIds(), matrix.filmIds(requesterRow), version);
+        return filmIds;
+    }
+
+    /* Похожие пользователи - те, у кого модуль средней разницы оценок общих фильмов минимален */
+    private int[] findSimilarRows(RatingMatrix matrix, int requesterRow) {
+        int[] bestRows = new int[matrix.rowCount()];
+        int bestCount = 0;
+        long bestDiff = 0;
+        long bestCommon = 0;
+        for (int row = 0; row < matrix.rowCount(); row++) {
+            if (row == requesterRow) {
+                continue;
+            }
+            long diff = 0;
+            long common = 0;
+            int i = matrix.rowStart(requesterRow);
+            int j = matrix.rowStart(row);
+            while (i < matrix.rowEnd(requesterRow) && j < matrix.rowEnd(row)) {
+                int requesterFilm = matrix.filmId(i);
+                int candidateFilm = matrix.filmId(j);
+                if (requesterFilm < candidateFilm) {
+                    i++;
+                } else if (requesterFilm > candidateFilm) {
+                    j++;
+                } else {
+                    diff += matrix.rating(i++) - matrix.rating(j++);
+                    common++;
+                }
+            }
+            if (common == 0) {
+                continue;
+            }
+            /* Сравнение |diff| / common без деления: |diff| * bestCommon и |bestDiff| * common */
+            long compare = bestCount == 0 ? -1 : Math.abs(diff) * bestCommon - bestDiff * common;
+            if (compare < 0) {
+                bestCount = 0;
+                bestDiff = Math.abs(diff);
+                bestCommon = common;
+            }
+            if (compare <= 0) {
+                bestRows[bestCount++] = row;
+            }
+        }
+        return Arrays.copyOf(bestRows, bestCount);
+    }
+
+    private int[] collectFilms(RatingMatrix matrix, int requesterRow, int[] similarRows) {
+        return IntStream.of(similarRows)
+                .flatMap(row -> IntStream.range(matrix.rowStart(row), matrix.rowEnd(row))
+                        .filter(position -> matrix.rating(position) > MIN_GOOD_FILM_RATING)
+                        .map(matrix::filmId))
+                .filter(filmId -> !matrix.contains(requesterRow, filmId))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+public class RecommendationWarmUpJob {
+    private final RecommendationService recommendationService;
+    private final int usersCount;
+
+    public RecommendationWarmUpJob(RecommendationService recommendationService,
+                                   @Value("${filmorate.recommendations.warm-up.users:100}") int usersCount) {
+        this.recommendationService = recommendationService;
+        this.usersCount = usersCount;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.recommendations.warm-up.interval-ms:300000}",
+            fixedDelayString = "${filmorate.recommendations.warm-up.interval-ms:300000}")
+    public void warmUp() {
+        log.info("СЕРВИС: Запуск предварительного расчёта рекомендаций для {} самых активных пользователей",
+                usersCount);
+        recommendationService.warmUp(usersCount);
+    }
+}
@@ -11,6 +11,7 @@ import ru.yandex.practicum.javafilmorate.storage.dao.ReviewStorage;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 
+import java.util.Comparator;
 import java.util.List;
 
 @Slf4j
@@ -19,15 +20,17 @@ public class ReviewService {
 
     private final ReviewStorage reviewStorage;
     private final EventService eventService;
+    private final ReviewUsefulCounter usefulCounter;
 
     @Autowired
-    public ReviewService(ReviewStorage reviewStorage, EventService eventService) {
+    public ReviewService(ReviewStorage reviewStorage, EventService eventService, ReviewUsefulCounter usefulCounter) {
         this.reviewStorage = reviewStorage;
         this.eventService = eventService;
+        this.usefulCounter = usefulCounter;
     }
 
     public Review add(Review review) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление отзыва с id {}", review.getReviewId());
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление отзыва с id {}", review.getReviewId());
         if (review.getUserId() < 0)
             throw new UnregisteredDataException("Идентификатор пользователя не может быть отрицательным");
         if (review.getFilmId() < 0)
@@ -39,45 +42,65 @@ public class ReviewService {
 
     public Review update(Review review) {
         Review oldReview = findReviewByID(review.getReviewId());
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на обновление отзыва с id {}", review.getReviewId());
-        Review newReview = reviewStorage.update(review);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на обновление отзыва с id {}", review.getReviewId());
+        reviewStorage.update(review);
+        Review newReview = usefulCounter.withPending(() -> reviewStorage.findReviewByID(review.getReviewId()));
         eventService.add(new Event(EventType.REVIEW, OperationType.UPDATE, oldReview.getReviewId(), oldReview.getUserId()));
         return newReview;
     }
 
     public List<Review> findReviewsByFilmID(int filmID, int count) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка отзывов на фильм с id {}", filmID);
-        return (filmID != 0) ? reviewStorage.findReviewsByFilmID(filmID, count) : reviewStorage.findAllReviews(count);
+        return findReviewsByFilmID(filmID, Integer.MAX_VALUE, 0, count);
+    }
+
+    public List<Review> findReviewsByFilmID(int filmID, int afterUseful, int afterId, int count) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка отзывов на фильм с id {}", filmID);
+        /* Список не ждёт записи накопленной полезности: страница выбирается по значениям в базе, которые
+         * отстают не больше чем на интервал фоновой записи, а внутри страницы упорядочивается с учётом
+         * незаписанных голосов */
+        List<Review> reviews = usefulCounter.withPendingAll(() -> (filmID != 0)
+                ? reviewStorage.findReviewsByFilmID(filmID, afterUseful, afterId, count)
+                : reviewStorage.findAllReviews(afterUseful, afterId, count));
+        reviews.sort(Comparator.comparingInt(Review::getUseful).reversed().thenComparingInt(Review::getReviewId));
+        return reviews;
     }
 
     public Review findReviewByID(int reviewID) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение отзыва по id {}", reviewID);
-        Review review = reviewStorage.findReviewByID(reviewID);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение отзыва по id {}", reviewID);
+        Review review = usefulCounter.withPending(() -> reviewStorage.findReviewByID(reviewID));
         if (review != null) {
             return review;
         } else throw new UnregisteredDataException("Нет отзыва с ID: " + reviewID);
     }
 
     public void removeReview(int reviewID) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на удаление отзыва по id {}", reviewID);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление отзыва по id {}", reviewID);
         int userId = reviewStorage.findReviewByID(reviewID).getUserId();
         reviewStorage.removeReview(reviewID);
         eventService.add(new Event(EventType.REVIEW, OperationType.REMOVE, reviewID, userId));
     }
 
     public void addLike(int reviewID, int userID) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление лайка на отзыв по id {} от пользователя с id {} ",
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление лайка на отзыв по id {} от пользователя с id {} ",
                 reviewID, userID);
-        Review review = findReviewByID(reviewID);
-        review.setUseful(review.getUseful() + 1);
-        reviewStorage.updateUseful(review);
+        usefulCounter.add(reviewID, reviewStorage.addVote(reviewID, userID, 1));
     }
 
     public void addDislike(int reviewID, int userID) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление дислайка на отзыв по id {} от пользователя с id {} ",
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление дислайка на отзыв по id {} от пользователя с id {} ",
+                reviewID, userID);
+        usefulCounter.add(reviewID, reviewStorage.addVote(reviewID, userID, -1));
+    }
+
+    public void removeLike(int reviewID, int userID) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление лайка на отзыв по id {} от пользователя с id {} ",
+                reviewID, userID);
+        usefulCounter.add(reviewID, reviewStorage.removeVote(reviewID, userID, 1));
+    }
+
+    public void removeDislike(int reviewID, int userID) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление дислайка на отзыв по id {} от пользователя с id {} ",
                 reviewID, userID);
-        Review review = findReviewByID(reviewID);
-        review.setUseful(review.getUseful() - 1);
-        reviewStorage.updateUseful(review);
+        usefulCounter.add(reviewID, reviewStorage.removeVote(reviewID, userID, -1));
     }
 }
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.javafilmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.javafilmorate.model.Review;
+import ru.yandex.practicum.javafilmorate.storage.dao.ReviewStorage;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/* Изменения полезности отзывов копятся в памяти и записываются пакетом: голоса за популярный отзыв
+ * не конкурируют за его строку в REVIEWS, а расходятся по ячейкам LongAdder */
+@Slf4j
+@Service
+public class ReviewUsefulCounter {
+    private static final int OPTIMISTIC_READS = 3;
+
+    private final ReviewStorage reviewStorage;
+    private final int flushSize;
+    private final Map<Integer, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    /* Нечётное значение — идёт запись: изменения уже сняты со счётчиков, но ещё не видны в базе */
+    private final AtomicLong flushVersion = new AtomicLong();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "review-useful-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReviewUsefulCounter(ReviewStorage reviewStorage,
+                               @Value("${filmorate.reviews.useful-flush-size:500}") int flushSize,
+                               @Value("${filmorate.reviews.useful-flush-interval-ms:200}") long flushIntervalMs) {
+        this.reviewStorage = reviewStorage;
+        this.flushSize = flushSize;
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(int reviewId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        LongAdder adder = pending.computeIfAbsent(reviewId, id -> new LongAdder());
+        adder.add(delta);
+        /* Счётчик мог быть снят с учёта записью между получением и прибавлением: остаток переносится в новый */
+        if (pending.get(reviewId) != adder) {
+            add(reviewId, adder.sumThenReset());
+        }
+    }
+
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        flushVersion.incrementAndGet();
+        try {
+            Map<Integer, Long> batch = new HashMap<>();
+            for (Map.Entry<Integer, LongAdder> entry : pending.entrySet()) {
+                LongAdder adder = entry.getValue();
+                long delta = adder.sumThenReset();
+                if (delta == 0) {
+                    /* Простаивающий счётчик удаляется. Прибавленное к нему после удаления забирает
+                     * либо эта запись, либо сам прибавлявший поток: sumThenReset обнуляет ячейки атомарно */
+                    pending.remove(entry.getKey(), adder);
+                    delta = adder.sumThenReset();
+                }
+                if (delta != 0) {
+                    batch.put(entry.getKey(), delta);
+                    if (batch.size() == flushSize) {
+                        write(batch);
+                        batch = new HashMap<>();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushVersion.incrementAndGet();
+            flushLock.unlock();
+        }
+    }
+
+    /* Отзыв из базы с ещё не записанными изменениями полезности. Чтение не ждёт записи: если за время
+     * чтения запись началась или закончилась, оно повторяется, и только после нескольких неудач
+     * выполняется под блокировкой записи */
+    public Review withPending(Supplier<Review> loader) {
+        return read(loader, review -> {
+            applyPending(review);
+            return review;
+        });
+    }
+
+    public List<Review> withPendingAll(Supplier<List<Review>> loader) {
+        return read(loader, reviews -> {
+            reviews.forEach(this::applyPending);
+            return reviews;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("СЕРВИС: Поток записи полезности отзывов не завершился, остаток записывается при остановке");
+        }
+        flush();
+    }
+
+    private void write(Map<Integer, Long> batch) {
+        try {
+            reviewStorage.addUseful(batch);
+        } catch (DataAccessException e) {
+            /* Изменения возвращаются в счётчики и будут записаны следующей попыткой */
+            log.warn("СЕРВИС: Не удалось записать полезность {} отзывов: {}", batch.size(), e.getMessage());
+            batch.forEach(this::add);
+        }
+    }
+
+    private <T> T read(Supplier<T> loader, UnaryOperator<T> overlay) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long version = flushVersion.get();
+            if ((version & 1) == 0) {
+                T loaded = overlay.apply(loader.get());
+                if (flushVersion.get() == version) {
+                    return loaded;
+                }
+            }
+        }
+        flushLock.lock();
+        try {
+            return overlay.apply(loader.get());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void applyPending(Review review) {
+        if (review == null) {
+            return;
+        }
+        LongAdder adder = pending.get(review.getReviewId());
+        long delta = adder == null ? 0 : adder.sum();
+        if (delta != 0) {
+            review.setUseful((int) (review.getUseful() + delta));
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("СЕРВИС: Ошибка фоновой записи полезности отзывов", e);
+        }
+    }
+}
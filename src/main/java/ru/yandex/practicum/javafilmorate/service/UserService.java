@@ -6,140 +6,109 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.javafilmorate.model.*;
 import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.FriendStorage;
-import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.javafilmorate.storage.index.UserMarksIndex;
 import ru.yandex.practicum.javafilmorate.utils.CheckUtil;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @AllArgsConstructor
 public class UserService {
-    private static final int MIN_GOOD_FILM_RATING = 5;
     private final UserStorage userStorage;
     private final FilmStorage filmStorage;
     private final FriendStorage friendStorage;
     private final EventService eventService;
-    private final MarkStorage markStorage;
+    private final RecommendationService recommendationService;
+    private final FilmPopularityIndex popularityIndex;
+    private final FriendFeedService friendFeedService;
+    private final FriendGraph friendGraph;
+    private final UserMarksIndex userMarksIndex;
 
     public User addUser(User user) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление пользователя с id {}", user.getId());
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление пользователя с id {}", user.getId());
         return userStorage.addUser(user);
     }
 
     public User updateUser(User user) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на обновление пользователя с id {}", user.getId());
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на обновление пользователя с id {}", user.getId());
         return userStorage.updateUser(user);
     }
 
     public List<User> findAll() {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка всех пользователей");
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка всех пользователей");
         return userStorage.findAll();
     }
 
+    public List<User> findAll(int afterId, int limit) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение {} пользователей с id больше {}", limit, afterId);
+        return userStorage.findAll(afterId, limit);
+    }
+
+    public void streamAll(Consumer<User> action) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на потоковую выгрузку пользователей");
+        userStorage.streamAll(action);
+    }
+
     public void addFriend(Integer userId, Integer friendId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на добавление пользователю с id {} друга с id {}",
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на добавление пользователю с id {} друга с id {}",
                 userId, friendId);
         friendStorage.addFriend(userId, friendId);
+        friendFeedService.invalidate(userId);
         eventService.add(new Event(EventType.FRIEND, OperationType.ADD, friendId, userId));
     }
 
     public void deleteFriend(Integer userId, Integer friendId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на удаление у пользователя с id {} друга с id {}",
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление у пользователя с id {} друга с id {}",
                 userId, friendId);
         friendStorage.deleteFriend(userId, friendId);
+        friendFeedService.invalidate(userId);
         eventService.add(new Event(EventType.FRIEND, OperationType.REMOVE, friendId, userId));
     }
 
     public List<User> getUserFriends(Integer userId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка всех друзей пользователя с id {}", userId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка всех друзей пользователя с id {}", userId);
         return friendStorage.getUserFriends(userId);
     }
 
     public List<User> getCommonFriends(Integer userId, Integer friendId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение списка общих друзей пользователей с id {} и id {}",
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение списка общих друзей пользователей с id {} и id {}",
                 userId, friendId);
         return friendStorage.getCommonsFriends(userId, friendId);
     }
 
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение {} возможных знакомых пользователя с id {}",
+                limit, userId);
+        return friendStorage.getFriendSuggestions(userId, limit);
+    }
+
     public User findById(Integer userId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на получение пользователя по id {}", userId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на получение пользователя по id {}", userId);
         return userStorage.findById(userId);
     }
 
     public void deleteUser(int userId) {
-        log.info("СЕРВИС: Отправлен запрос к хранилищу на удаление у пользователя с id {}.", userId);
-        CheckUtil.checkNotFound(userStorage.deleteUser(userId), " пользователь с id=" + userId);
+        log.debug("СЕРВИС: Отправлен запрос к хранилищу на удаление у пользователя с id {}.", userId);
+        /* Оценки и дружба пользователя удаляются каскадно: рейтинг популярности уменьшается на удалённые оценки,
+         * граф дружбы, индекс оценок и рекомендации пересчитываются */
+        popularityIndex.runUpdate(() -> {
+            List<Mark> deletedMarks = userStorage.deleteUser(userId);
+            CheckUtil.checkNotFound(deletedMarks != null, " пользователь с id=" + userId);
+            deletedMarks.forEach(mark -> popularityIndex.addRating(mark.getFilmId(), -mark.getRating()));
+        });
+        friendGraph.removeUser(userId);
+        userMarksIndex.removeUser(userId);
+        recommendationService.invalidateAll();
+        friendFeedService.invalidateAll();
     }
 
     public List<Film> findRecommendationsForUser(Integer requesterId) {
-        log.info("СЕРВИС: Обработка запроса на рекомендации фильмов для пользователя с id {}", requesterId);
-
-        Map<Integer, Set<Mark>> allMarksMap = markStorage.getAllMarks();
-
-        List<Integer> requesterFilmsListId = new ArrayList<>();
-        HashMap<Mark, Set<Mark>> marksRequesterFilmsListIdPresentMap = new HashMap<>();
-
-        for (Map.Entry<Integer, Set<Mark>> filmMarks : allMarksMap.entrySet())
-            for (Mark mark : filmMarks.getValue())
-                if (Objects.equals(mark.getUserId(), requesterId)) {
-                    requesterFilmsListId.add(filmMarks.getKey());
-                    marksRequesterFilmsListIdPresentMap.put(mark, filmMarks.getValue());
-                }
-
-        return getListRecommendFilmsForRequesterFromListSimilarUserId(allMarksMap, requesterFilmsListId,
-                getListSimilarUsers(marksRequesterFilmsListIdPresentMap));
-    }
-
-    private List<Integer> getListSimilarUsers(HashMap<Mark, Set<Mark>> marksRequesterFilmsListIdPresentMap) {
-        HashMap<Integer, Integer> candidateAndRequesterSumDiffMap = new HashMap<>();
-        HashMap<Integer, Integer> counterFreqConcurrenceMarksMap = new HashMap<>();
-        computeSummaMarksDiff(marksRequesterFilmsListIdPresentMap, candidateAndRequesterSumDiffMap, counterFreqConcurrenceMarksMap);
-
-        return candidateAndRequesterSumDiffMap.entrySet().stream()
-                .map(e -> Map.entry(e.getKey(), Math.abs((double) e.getValue()
-                        / (double) counterFreqConcurrenceMarksMap.get(e.getKey()))))
-                .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
-                .entrySet().stream().min(Comparator.comparingDouble(Map.Entry::getKey))
-                .map(Map.Entry::getValue).orElse(List.of());
-    }
-
-    private void computeSummaMarksDiff(HashMap<Mark, Set<Mark>> marksRequesterFilmsListIdPresentMap,
-                                       HashMap<Integer, Integer> candidateAndRequesterSumDiffMap,
-                                       HashMap<Integer, Integer> counterFreqConcurrenceMarksMap) {
-        for (Map.Entry<Mark, Set<Mark>> marksRequesterPresentEntry : marksRequesterFilmsListIdPresentMap.entrySet()) {
-            Mark requesterMark = marksRequesterPresentEntry.getKey();
-            for (Mark candidatMark : marksRequesterPresentEntry.getValue()) {
-                if (!Objects.equals(requesterMark.getUserId(), candidatMark.getUserId())) {
-                    if (!candidateAndRequesterSumDiffMap.containsKey(candidatMark.getUserId())) {
-                        candidateAndRequesterSumDiffMap.put(candidatMark.getUserId(), 0);
-                        counterFreqConcurrenceMarksMap.put(candidatMark.getUserId(), 0);
-                    }
-                    int oldGrade = candidateAndRequesterSumDiffMap.get(candidatMark.getUserId());
-                    int oldRating = counterFreqConcurrenceMarksMap.get(candidatMark.getUserId());
-                    int currentRatingDiff = requesterMark.getRating() - candidatMark.getRating();
-                    candidateAndRequesterSumDiffMap.put(candidatMark.getUserId(), oldGrade + currentRatingDiff);
-                    counterFreqConcurrenceMarksMap.put(candidatMark.getUserId(), oldRating + 1);
-                }
-            }
-        }
-    }
-
-    private List<Film> getListRecommendFilmsForRequesterFromListSimilarUserId(Map<Integer, Set<Mark>> allMarksMap,
-                                                                              List<Integer> requesterFilmsListId,
-                                                                              List<Integer> listResultSimilarId) {
-        return allMarksMap.values().stream()
-                .flatMap(Collection::stream).collect(Collectors.toList())
-                .stream().filter(mark -> checkMark(mark, requesterFilmsListId, listResultSimilarId))
-                .map(Mark::getFilmId)
-                .map(filmStorage::findById).distinct().collect(Collectors.toList());
-    }
-
-    private boolean checkMark(Mark mark, List<Integer> requesterFilmsListId, List<Integer> listResultSimilarId) {
-        return (listResultSimilarId.contains(mark.getUserId())
-                && !requesterFilmsListId.contains(mark.getFilmId())
-                && mark.getRating() > MIN_GOOD_FILM_RATING);
+        log.debug("СЕРВИС: Обработка запроса на рекомендации фильмов для пользователя с id {}", requesterId);
+        return recommendationService.findRecommendations(requesterId);
     }
 }
@@ -1,11 +1,21 @@
 package ru.yandex.practicum.javafilmorate.storage.dao;
 
 import ru.yandex.practicum.javafilmorate.model.Event;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface EventStorage {
 
     Event add(Event event);
 
+    void addAll(List<Event> events);
+
     List<Event> getUserEvents(int userId);
+
+    List<Event> getUserEvents(int userId, int sinceEventId, int limit);
+
+    List<Event> getFriendsEvents(int userId, int beforeEventId, int limit);
+
+    List<Event> getUsersEvents(Collection<Integer> userIds, int beforeEventId, int limit);
 }
@@ -3,31 +3,34 @@ package ru.yandex.practicum.javafilmorate.storage.dao;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.javafilmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Component
 public interface FilmStorage {
     List<Film> findAll();
 
+    List<Film> findAll(int afterId, int limit);
+
+    void streamAll(Consumer<Film> action);
+
     Film addFilm(Film film);
 
+    void addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     boolean deleteFilm(int filmId);
 
     Film findById(int filmId);
 
-    List<Film> getPopularFilms(int limit);
-
-    List<Film> commonFilms(int userId, int friendId);
+    List<Film> findByIds(List<Integer> filmIds);
 
     List<Film> findDirectorFilmsByYearOrLikes(int directorId, String sortBy);
 
-    List<Film> getPopularByGenre(int count, int genreId);
-
-    List<Film> getPopularByYear(int count, int year);
-
-    List<Film> getPopularByGenreAndYear(int count, int genreId, int year);
+    List<Film> findPopularByIds(Collection<Integer> filmIds);
 
-    List<Film> searchBySubstring(String query, String by);
+    Set<Integer> getRegisteredFilmIds(Collection<Integer> filmIds);
 }
\ No newline at end of file
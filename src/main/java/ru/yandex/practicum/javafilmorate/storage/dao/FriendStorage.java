@@ -2,7 +2,10 @@ package ru.yandex.practicum.javafilmorate.storage.dao;
 
 import ru.yandex.practicum.javafilmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface FriendStorage {
     void addFriend(int userId, int friendId);
@@ -13,4 +16,11 @@ public interface FriendStorage {
 
     List<User> getCommonsFriends(int userId, int friendId);
 
+    List<User> getFriendSuggestions(int userId, int limit);
+
+    List<Integer> getFriendIds(int userId);
+
+    Map<Integer, List<Integer>> getFollowerIds(Collection<Integer> userIds);
+
+    Set<Integer> getUsersWithFollowersOver(int followersCount);
 }
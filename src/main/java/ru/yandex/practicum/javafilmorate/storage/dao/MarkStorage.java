@@ -1,17 +1,22 @@
 package ru.yandex.practicum.javafilmorate.storage.dao;
 
 import ru.yandex.practicum.javafilmorate.model.Mark;
+import ru.yandex.practicum.javafilmorate.storage.index.RatingMatrix;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 public interface MarkStorage {
     void addMark(Mark like);
 
-    void deleteMark(int filmId, int userId);
+    Mark deleteMark(int filmId, int userId);
+
+    List<Mark> mergeMarks(List<Mark> marks);
 
     List<Mark> getMarks(int filmId);
 
-    Map<Integer, Set<Mark>> getAllMarks();
+    RatingMatrix getNeighbourhoodMatrix(int userId);
+
+    List<Integer> getMostActiveUsers(int count);
+
+    int reconcileRatingAggregates();
 }
\ No newline at end of file
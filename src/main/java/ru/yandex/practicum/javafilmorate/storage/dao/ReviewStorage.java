@@ -3,17 +3,22 @@ package ru.yandex.practicum.javafilmorate.storage.dao;
 import ru.yandex.practicum.javafilmorate.model.Review;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ReviewStorage {
     public Review add(Review review);
 
     public Review update(Review review);
 
-    public void updateUseful(Review review);
+    public int addVote(int reviewID, int userID, int vote);
 
-    public List<Review> findAllReviews(int count);
+    public int removeVote(int reviewID, int userID, int vote);
 
-    public List<Review> findReviewsByFilmID(int filmID, int count);
+    public void addUseful(Map<Integer, Long> deltas);
+
+    public List<Review> findAllReviews(int afterUseful, int afterId, int count);
+
+    public List<Review> findReviewsByFilmID(int filmID, int afterUseful, int afterId, int count);
 
     public Review findReviewByID(int reviewID);
 
@@ -1,9 +1,13 @@
 package ru.yandex.practicum.javafilmorate.storage.dao;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.javafilmorate.model.Mark;
 import ru.yandex.practicum.javafilmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Component
 public interface UserStorage {
@@ -11,10 +15,17 @@ public interface UserStorage {
 
     User updateUser(User user);
 
-    boolean deleteUser(int userId);
+    /* Возвращает удалённые вместе с пользователем оценки или null, если пользователя нет */
+    List<Mark> deleteUser(int userId);
 
     User findById(Integer userId);
 
     List<User> findAll();
 
+    List<User> findAll(int afterId, int limit);
+
+    void streamAll(Consumer<User> action);
+
+    Set<Integer> getRegisteredUserIds(Collection<Integer> userIds);
+
 }
@@ -5,11 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.javafilmorate.model.Director;
 import ru.yandex.practicum.javafilmorate.model.Film;
 import ru.yandex.practicum.javafilmorate.storage.dao.DirectorStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 import java.sql.PreparedStatement;
@@ -17,6 +17,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Slf4j
@@ -24,34 +25,26 @@ import java.util.Set;
 @Repository
 public class DirectorDbStorage implements DirectorStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public List<Director> findAll() {
-        log.info("ХРАНИЛИЩЕ: Получение из хранилища списка всех режиссёров");
-        String sqlQuery = "SELECT * FROM DIRECTORS";
-        List<Director> directors = new ArrayList<>();
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery);
-        while (rs.next()) {
-            directors.add(directorRowMap(rs));
-        }
-        return directors;
+        log.debug("ХРАНИЛИЩЕ: Получение из хранилища списка всех режиссёров");
+        return referenceDataCache.getAllDirectors();
     }
 
     @Override
     public Director findById(Integer directorId) {
-        log.info("ХРАНИЛИЩЕ: Получение режиссёра по id {}", directorId);
-        String sqlQuery = "SELECT * FROM DIRECTORS WHERE DIRECTOR_ID = ?";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, directorId);
-        if (rs.next()) {
-            return directorRowMap(rs);
-        } else {
-            throw new UnregisteredDataException("Режиссёр с id " + directorId + " не зарегистрирован в системе");
-        }
+        log.debug("ХРАНИЛИЩЕ: Получение режиссёра по id {}", directorId);
+        Optional<Director> director = directorId == null ? Optional.empty()
+                : referenceDataCache.getDirector(directorId);
+        return director.orElseThrow(() ->
+                new UnregisteredDataException("Режиссёр с id " + directorId + " не зарегистрирован в системе"));
     }
 
     @Override
     public Director addDirector(Director director) {
-        log.info("ХРАНИЛИЩЕ: Добавление режиссёра с id {} в хранилище", director.getId());
+        log.debug("ХРАНИЛИЩЕ: Добавление режиссёра с id {} в хранилище", director.getId());
         if (director == null) {
             throw new UnregisteredDataException("При добавлении режиссёра был передан null");
         }
@@ -59,44 +52,42 @@ public class DirectorDbStorage implements DirectorStorage {
                 .withTableName("DIRECTORS")
                 .usingGeneratedKeyColumns("DIRECTOR_ID");
         director.setId(simpleJdbcInsert.executeAndReturnKey(director.directorToMap()).intValue());
+        referenceDataCache.putDirector(director);
         return director;
     }
 
     @Override
     public Director updateDirector(Director director) {
-        log.info("ХРАНИЛИЩЕ: Обновление режиссёра с id {}", director.getId());
+        log.debug("ХРАНИЛИЩЕ: Обновление режиссёра с id {}", director.getId());
         if (findById(director.getId()) == null) {
             throw new UnregisteredDataException("При обновлении данных передан режиссёр без id");
         }
         String sqlQuery = "UPDATE DIRECTORS SET DIRECTOR_NAME = ? WHERE DIRECTOR_ID = ?";
         jdbcTemplate.update(sqlQuery, director.getName(), director.getId());
+        referenceDataCache.putDirector(director);
         return director;
     }
 
     @Override
     public void deleteDirector(Integer directorId) {
-        log.info("ХРАНИЛИЩЕ: Удаление режиссёра с id {}", directorId);
+        log.debug("ХРАНИЛИЩЕ: Удаление режиссёра с id {}", directorId);
         String sqlQuery = "DELETE FROM DIRECTORS WHERE DIRECTOR_ID = ?";
         jdbcTemplate.update(sqlQuery, directorId);
+        referenceDataCache.removeDirector(directorId);
     }
 
     @Override
     public Set<Director> findDirectorsByFilmId(Integer filmId) {
-        log.info("ХРАНИЛИЩЕ: Поиск режиссёров для фильма с id {}", filmId);
-        Set<Director> directors = new HashSet<>();
+        log.debug("ХРАНИЛИЩЕ: Поиск режиссёров для фильма с id {}", filmId);
         String sqlQuery = "SELECT D.* FROM FILMS_DIRECTORS AS FD " +
                 "JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
                 "WHERE FD.FILM_ID = ?";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
-        while (rs.next()) {
-            directors.add(directorRowMap(rs));
-        }
-        return directors;
+        return new HashSet<>(jdbcTemplate.query(sqlQuery, RowMappers.DIRECTOR, filmId));
     }
 
     @Override
     public void addFilmDirectors(Film film) {
-        log.info("ХРАНИЛИЩЕ: Добавление режиссёров для фильма с id {}", film.getId());
+        log.debug("ХРАНИЛИЩЕ: Добавление режиссёров для фильма с id {}", film.getId());
         List<Director> directors = List.copyOf(film.getDirectors());
         if (!directors.isEmpty()) {
             String sqlQuery = "INSERT INTO FILMS_DIRECTORS (FILM_ID, DIRECTOR_ID) VALUES (?, ?)";
@@ -117,16 +108,8 @@ public class DirectorDbStorage implements DirectorStorage {
 
     @Override
     public void deleteFilmDirectors(Film film) {
-        log.info("ХРАНИЛИЩЕ: Удаление режиссёров для фильма с id {}", film.getId());
+        log.debug("ХРАНИЛИЩЕ: Удаление режиссёров для фильма с id {}", film.getId());
         String sqlQuery = "DELETE FROM FILMS_DIRECTORS WHERE FILM_ID = ?";
         jdbcTemplate.update(sqlQuery, film.getId());
     }
-
-    public Director directorRowMap(SqlRowSet rs) {
-        log.info("ХРАНИЛИЩЕ: Производится маппинг режиссёра");
-        return new Director(
-                rs.getInt("DIRECTOR_ID"),
-                rs.getString("DIRECTOR_NAME")
-        );
-    }
 }
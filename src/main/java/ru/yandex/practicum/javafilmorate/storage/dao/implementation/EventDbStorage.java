@@ -3,52 +3,100 @@ package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.javafilmorate.model.Event;
-import ru.yandex.practicum.javafilmorate.model.EventType;
-import ru.yandex.practicum.javafilmorate.model.OperationType;
 import ru.yandex.practicum.javafilmorate.storage.dao.EventStorage;
 
-import java.sql.ResultSet;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Slf4j
 @AllArgsConstructor
 @Repository
 public class EventDbStorage implements EventStorage {
 
+    private static final String INSERT_QUERY =
+            "INSERT INTO EVENTS (EVENT_TYPE, OPERATION_TYPE, ENTITY_ID, USER_ID, EVENT_TIME) VALUES ";
+    private static final String VALUES_ROW = "(?, ?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
 
     @Override
     public Event add(Event event) {
-        log.info("ХРАНИЛИЩЕ: Добавление в хранилище event с userId={}", event.getUserId());
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("Events")
-                .usingGeneratedKeyColumns("EVENT_ID");
-        Map<String, Object> params = Map.of("EVENT_TYPE", event.getEventType().toString(),
-                "OPERATION_TYPE", event.getOperation().toString(), "ENTITY_ID", event.getEntityId(),
-                "USER_ID", event.getUserId(), "EVENT_TIME", event.getTimestamp());
-        event.setEventId(simpleJdbcInsert.executeAndReturnKey(params).intValue());
+        log.debug("ХРАНИЛИЩЕ: Добавление в хранилище event с userId={}", event.getUserId());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_QUERY + VALUES_ROW, new String[]{"EVENT_ID"});
+            setEventParams(ps, 0, event);
+            return ps;
+        }, keyHolder);
+        event.setEventId(Objects.requireNonNull(keyHolder.getKey()).intValue());
         return event;
     }
 
+    @Override
+    public void addAll(List<Event> events) {
+        log.debug("ХРАНИЛИЩЕ: Пакетное добавление в хранилище {} events", events.size());
+        /* Один многострочный INSERT на пакет, порядок строк сохраняет порядок EVENT_ID */
+        String sqlQuery = INSERT_QUERY + String.join(", ", Collections.nCopies(events.size(), VALUES_ROW));
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sqlQuery, new String[]{"EVENT_ID"});
+            for (int i = 0; i < events.size(); i++) {
+                setEventParams(ps, i * 5, events.get(i));
+            }
+            return ps;
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setEventId(((Number) keys.get(i).get("EVENT_ID")).intValue());
+        }
+    }
+
+    @Override
     public List<Event> getUserEvents(int userId) {
-        String sqlQuery = "SELECT * FROM Events e WHERE e.USER_ID=?";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> eventRowMap(rs), userId);
+        String sqlQuery = "SELECT * FROM EVENTS WHERE USER_ID = ? ORDER BY EVENT_ID";
+        return jdbcTemplate.query(sqlQuery, RowMappers.EVENT, userId);
+    }
+
+    @Override
+    public List<Event> getUserEvents(int userId, int sinceEventId, int limit) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} events пользователя с id {} после event с id {}", limit, userId,
+                sinceEventId);
+        String sqlQuery = "SELECT * FROM EVENTS WHERE USER_ID = ? AND EVENT_ID > ? ORDER BY EVENT_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, RowMappers.EVENT, userId, sinceEventId, limit);
+    }
+
+    @Override
+    public List<Event> getFriendsEvents(int userId, int beforeEventId, int limit) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} events друзей пользователя с id {} до event с id {}", limit, userId,
+                beforeEventId);
+        String sqlQuery = "SELECT E.* FROM EVENTS AS E JOIN FRIENDS AS F ON E.USER_ID = F.FRIEND_ID " +
+                "WHERE F.USER_ID = ? AND E.EVENT_ID < ? ORDER BY E.EVENT_ID DESC LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, RowMappers.EVENT, userId, beforeEventId, limit);
+    }
+
+    @Override
+    public List<Event> getUsersEvents(Collection<Integer> userIds, int beforeEventId, int limit) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} events {} пользователей до event с id {}", limit, userIds.size(),
+                beforeEventId);
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        String sqlQuery = "SELECT * FROM EVENTS WHERE USER_ID = ANY(?) AND EVENT_ID < ? " +
+                "ORDER BY EVENT_ID DESC LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, RowMappers.EVENT, userIds.toArray(new Integer[0]), beforeEventId, limit);
     }
 
-    private Event eventRowMap(ResultSet rs) throws SQLException {
-        return Event.builder()
-                .eventId(rs.getInt("EVENT_ID"))
-                .eventType(EventType.valueOf(rs.getString("EVENT_TYPE")))
-                .operation(OperationType.valueOf(rs.getString("OPERATION_TYPE")))
-                .entityId(rs.getInt("ENTITY_ID"))
-                .userId(rs.getInt("USER_ID"))
-                .timestamp(rs.getLong("EVENT_TIME"))
-                .build();
+    private void setEventParams(PreparedStatement ps, int offset, Event event) throws SQLException {
+        ps.setString(offset + 1, event.getEventType().toString());
+        ps.setString(offset + 2, event.getOperation().toString());
+        ps.setInt(offset + 3, event.getEntityId());
+        ps.setInt(offset + 4, event.getUserId());
+        ps.setLong(offset + 5, event.getTimestamp());
     }
 
 }
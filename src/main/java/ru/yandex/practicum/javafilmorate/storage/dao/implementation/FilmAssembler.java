@@ -0,0 +1,105 @@
+package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.javafilmorate.model.*;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class FilmAssembler {
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+
+    public FilmAssembler(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    public List<Film> query(String sqlQuery, Object... args) {
+        return assemble(jdbcTemplate.query(sqlQuery, RowMappers.FILM, args));
+    }
+
+    public List<Film> query(String sqlQuery, Map<String, ?> params) {
+        return assemble(namedJdbcTemplate.query(sqlQuery, params, RowMappers.FILM));
+    }
+
+    public List<Film> findByIds(List<Integer> filmIds) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int from = 0; from < filmIds.size(); from += BATCH_SIZE) {
+            Map<String, Object> params = Map.of("filmIds", filmIds.subList(from,
+                    Math.min(from + BATCH_SIZE, filmIds.size())));
+            namedJdbcTemplate.query("SELECT * FROM FILMS WHERE FILM_ID IN (:filmIds)", params, RowMappers.FILM)
+                    .forEach(film -> filmsById.put(film.getId(), film));
+        }
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsById.remove(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return assemble(films);
+    }
+
+    public List<Film> assemble(List<Film> films) {
+        log.debug("ХРАНИЛИЩЕ: Заполнение данных для {} фильмов", films.size());
+        for (int from = 0; from < films.size(); from += BATCH_SIZE) {
+            hydrate(films.subList(from, Math.min(from + BATCH_SIZE, films.size())));
+        }
+        return films;
+    }
+
+    private void hydrate(List<Film> films) {
+        Map<Integer, Film> filmsById = films.stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity(), (first, second) -> first));
+        Map<String, Object> params = Map.of("filmIds", filmsById.keySet());
+        fillMpa(films);
+        fillGenres(filmsById, params);
+        fillDirectors(filmsById, params);
+        fillMarks(filmsById, params);
+    }
+
+    private void fillMpa(List<Film> films) {
+        films.forEach(film -> referenceDataCache.getMpa(film.getMpa().getId())
+                .ifPresent(mpa -> film.getMpa().setName(mpa.getName())));
+    }
+
+    private void fillGenres(Map<Integer, Film> filmsById, Map<String, Object> params) {
+        String sqlQuery = "SELECT FILM_ID, GENRE_ID FROM FILM_GENRES WHERE FILM_ID IN (:filmIds) " +
+                "ORDER BY FILM_ID, GENRE_ID";
+        Map<Integer, List<Genre>> filmGenres = new HashMap<>();
+        namedJdbcTemplate.query(sqlQuery, params, rs -> {
+            int filmId = rs.getInt("FILM_ID");
+            referenceDataCache.getGenre(rs.getInt("GENRE_ID")).ifPresent(genre ->
+                    filmGenres.computeIfAbsent(filmId, k -> new ArrayList<>()).add(genre));
+        });
+        filmGenres.forEach((filmId, genres) -> filmsById.get(filmId).setGenres(genres));
+    }
+
+    private void fillDirectors(Map<Integer, Film> filmsById, Map<String, Object> params) {
+        String sqlQuery = "SELECT FILM_ID, DIRECTOR_ID FROM FILMS_DIRECTORS WHERE FILM_ID IN (:filmIds)";
+        namedJdbcTemplate.query(sqlQuery, params, rs -> {
+            Film film = filmsById.get(rs.getInt("FILM_ID"));
+            referenceDataCache.getDirector(rs.getInt("DIRECTOR_ID")).ifPresent(director ->
+                    film.getDirectors().add(director));
+        });
+    }
+
+    private void fillMarks(Map<Integer, Film> filmsById, Map<String, Object> params) {
+        namedJdbcTemplate.query("SELECT * FROM MARKS WHERE FILM_ID IN (:filmIds)", params, rs -> {
+            filmsById.get(rs.getInt("FILM_ID"))
+                    .addMark(new Mark(rs.getInt("FILM_ID"), rs.getInt("USER_ID"), rs.getInt("RATING")));
+        });
+    }
+}
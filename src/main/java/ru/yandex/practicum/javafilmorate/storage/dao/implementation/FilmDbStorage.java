@@ -5,48 +5,69 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.javafilmorate.model.Director;
 import ru.yandex.practicum.javafilmorate.model.Film;
 import ru.yandex.practicum.javafilmorate.model.Genre;
-import ru.yandex.practicum.javafilmorate.model.Mark;
 import ru.yandex.practicum.javafilmorate.storage.dao.*;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @AllArgsConstructor
 @Repository
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_PAGE_SIZE = 500;
+    /* H2 ограничивает длину массива-параметра 65536 элементами */
+    private static final int ID_ARRAY_SIZE = 10_000;
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
     private final DirectorStorage directorStorage;
-    private final MarkStorage markStorage;
+    private final FilmAssembler filmAssembler;
 
     @Override
     public List<Film> findAll() {
-        log.info("ХРАНИЛИЩЕ: Получение из хранилища списка всех фильмов");
+        log.debug("ХРАНИЛИЩЕ: Получение из хранилища списка всех фильмов");
         String sqlQuery = "SELECT * FROM FILMS";
-        List<Film> films = new ArrayList<>();
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
-        }
-        Map<Integer, Set<Mark>> marks = markStorage.getAllMarks();
-        films.forEach(film -> film.addMarks(marks.get(film.getId())));
-        return films;
+        return filmAssembler.query(sqlQuery);
+    }
+
+    @Override
+    public List<Film> findAll(int afterId, int limit) {
+        log.debug("ХРАНИЛИЩЕ: Получение из хранилища {} фильмов с id больше {}", limit, afterId);
+        String sqlQuery = "SELECT * FROM FILMS WHERE FILM_ID > ? ORDER BY FILM_ID LIMIT ?";
+        return filmAssembler.query(sqlQuery, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> action) {
+        log.debug("ХРАНИЛИЩЕ: Потоковая выгрузка всех фильмов страницами по {}", STREAM_PAGE_SIZE);
+        List<Film> page;
+        int afterId = 0;
+        do {
+            page = findAll(afterId, STREAM_PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
     }
 
     @Override
     public Film addFilm(Film film) {
-        log.info("ХРАНИЛИЩЕ: Добавление фильма с id {} в хранилище", film.getId());
+        log.debug("ХРАНИЛИЩЕ: Добавление фильма с id {} в хранилище", film.getId());
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("FILMS")
+                .usingColumns("FILM_NAME", "FILM_DESCRIPTION", "FILM_RELEASE_DATE", "FILM_DURATION", "MPA_ID")
                 .usingGeneratedKeyColumns("FILM_ID");
         film.setId(simpleJdbcInsert.executeAndReturnKey(film.filmToMap()).intValue());
         genreStorage.addFilmGenre(film);
@@ -54,10 +75,49 @@ public class FilmDbStorage implements FilmStorage {
         return findById(film.getId());
     }
 
+    @Override
+    public void addFilms(List<Film> films) {
+        log.debug("ХРАНИЛИЩЕ: Пакетное добавление в хранилище {} фильмов", films.size());
+        if (films.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            /* Один многострочный INSERT на пакет, ключи возвращаются в порядке строк */
+            String sqlQuery = "INSERT INTO FILMS (FILM_NAME, FILM_DESCRIPTION, FILM_RELEASE_DATE, FILM_DURATION, " +
+                    "MPA_ID) VALUES " + String.join(", ", Collections.nCopies(films.size(), "(?, ?, ?, ?, ?)"));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sqlQuery, new String[]{"FILM_ID"});
+                int offset = 0;
+                for (Film film : films) {
+                    ps.setString(++offset, film.getName());
+                    ps.setString(++offset, film.getDescription());
+                    ps.setObject(++offset, film.getReleaseDate());
+                    ps.setInt(++offset, film.getDuration());
+                    ps.setInt(++offset, film.getMpa().getId());
+                }
+                return ps;
+            }, keyHolder);
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            List<int[]> filmGenres = new ArrayList<>();
+            List<int[]> filmDirectors = new ArrayList<>();
+            for (int i = 0; i < films.size(); i++) {
+                Film film = films.get(i);
+                film.setId(((Number) keys.get(i).get("FILM_ID")).intValue());
+                film.getGenres().stream().mapToInt(Genre::getId).distinct()
+                        .forEach(genreId -> filmGenres.add(new int[]{film.getId(), genreId}));
+                film.getDirectors().stream().mapToInt(Director::getId).distinct()
+                        .forEach(directorId -> filmDirectors.add(new int[]{film.getId(), directorId}));
+            }
+            insertPairs("INSERT INTO FILM_GENRES (FILM_ID, GENRE_ID) VALUES ", filmGenres);
+            insertPairs("INSERT INTO FILMS_DIRECTORS (FILM_ID, DIRECTOR_ID) VALUES ", filmDirectors);
+        });
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        log.info("ХРАНИЛИЩЕ: Обновление данных по фильму с id {}", film.getId());
-        if (getAllFilms(film.getId()).next()) {
+        log.debug("ХРАНИЛИЩЕ: Обновление данных по фильму с id {}", film.getId());
+        if (isFilmRegistered(film.getId())) {
             String sqlQuery = "UPDATE FILMS SET FILM_NAME = ?, FILM_DESCRIPTION = ?, FILM_RELEASE_DATE = ?, " +
                     "FILM_DURATION = ?, MPA_ID = ? WHERE FILM_ID = ?";
             jdbcTemplate.update(sqlQuery,
@@ -81,204 +141,91 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public boolean deleteFilm(int filmId) {
-        log.info("ХРАНИЛИЩЕ: Удаление из хранилища фильма с id {}", filmId);
+        log.debug("ХРАНИЛИЩЕ: Удаление из хранилища фильма с id {}", filmId);
         String sqlQuery = "DELETE FROM FILMS WHERE FILM_ID = ? ";
         return jdbcTemplate.update(sqlQuery, filmId) > 0;
     }
 
     @Override
     public Film findById(int filmId) {
-        log.info("ХРАНИЛИЩЕ: Получение фильма по id {}", filmId);
+        log.debug("ХРАНИЛИЩЕ: Получение фильма по id {}", filmId);
         String sqlQuery = "SELECT * FROM FILMS WHERE FILM_ID = ?";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
-        Film film;
-        if (rs.next()) {
-            film = filmRowMap(rs);
-        } else {
+        List<Film> films = filmAssembler.query(sqlQuery, filmId);
+        if (films.isEmpty()) {
             throw new UnregisteredDataException("Фильм с id " + filmId + " не зарегистрирован в системе");
         }
-        rs = jdbcTemplate.queryForRowSet("SELECT * FROM MARKS WHERE FILM_ID = ?", filmId);
-        Set<Mark> marks = new HashSet<>();
-        while (rs.next()) {
-            Mark mark = new Mark(
-                    rs.getInt("FILM_ID"),
-                    rs.getInt("USER_ID"),
-                    rs.getInt("RATING"));
-            marks.add(mark);
-        }
-        film.addMarks(marks);
-        return film;
-    }
-
-    @Override
-    public List<Film> getPopularFilms(int limit) {
-        Map<Integer, Set<Mark>> marks = markStorage.getAllMarks();
-        Map<Integer, List<Genre>> filmGenres = genreStorage.getFilmsWithGenres();
-        String sqlQuery = "SELECT F.* FROM FILMS AS F " +
-                "JOIN MARKS AS M ON F.FILM_ID = M.FILM_ID " +
-                "GROUP BY F.FILM_ID ORDER BY SUM(M.RATING)  DESC LIMIT ?";
-        List<Film> films = jdbcTemplate.query(sqlQuery, (rs, rowNum) -> makeFilmForList(rs), limit);
-        films.forEach(film -> {
-            film.addMarks(marks.get(film.getId()));
-            film.setGenres(filmGenres.get(film.getId()));
-        });
-        return films;
+        return films.get(0);
     }
 
     @Override
-    public List<Film> getPopularByGenre(int count, int genreId) {
-        List<Film> films = new ArrayList<>();
-        String sqlQuery = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
-                "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                "LEFT JOIN FILM_GENRES AS FG ON F.FILM_ID = FG.FILM_ID " +
-                "WHERE FG.GENRE_ID = ? " +
-                "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC LIMIT ?";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, genreId, count);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
-        }
-        log.info("ХРАНИЛИЩЕ: Получение списка {} самых популярных фильмов с id жанра {}", count, genreId);
-        return films;
+    public List<Film> findByIds(List<Integer> filmIds) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} фильмов по списку id", filmIds.size());
+        return filmAssembler.findByIds(filmIds);
     }
 
     @Override
-    public List<Film> getPopularByYear(int count, int year) {
-        List<Film> films = new ArrayList<>();
-        String sqlQuery = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
-                "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                "WHERE YEAR(F.FILM_RELEASE_DATE) = ? " +
-                "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC LIMIT ?";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, year, count);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
+    public List<Film> findPopularByIds(Collection<Integer> filmIds) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} фильмов по id в порядке популярности", filmIds.size());
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
         }
-        log.info("ХРАНИЛИЩЕ: Получение списка {} самых популярных фильмов с годом релиза {}", count, year);
-        return films;
-    }
-
-    @Override
-    public List<Film> getPopularByGenreAndYear(int count, int genreId, int year) {
-        List<Film> films = new ArrayList<>();
-        String sqlQuery = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
-                "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                "LEFT JOIN FILM_GENRES AS FG ON F.FILM_ID = FG.FILM_ID " +
-                "WHERE FG.GENRE_ID = ? AND YEAR(F.FILM_RELEASE_DATE) = ? " +
-                "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC LIMIT ?";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, genreId, year, count);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
+        /* Массив в параметре не меняет текст запроса при любом числе id. Длинный список передаётся частями,
+         * поэтому порядок популярности восстанавливается по агрегатам после всех частей */
+        Integer[] ids = filmIds.toArray(new Integer[0]);
+        List<long[]> ranking = new ArrayList<>(ids.length);
+        for (int from = 0; from < ids.length; from += ID_ARRAY_SIZE) {
+            Object chunk = Arrays.copyOfRange(ids, from, Math.min(from + ID_ARRAY_SIZE, ids.length));
+            jdbcTemplate.query("SELECT FILM_ID, RATING_SUM FROM FILMS WHERE FILM_ID = ANY(?)", rs -> {
+                ranking.add(new long[]{rs.getLong("RATING_SUM"), rs.getInt("FILM_ID")});
+            }, chunk);
         }
-        log.info("ХРАНИЛИЩЕ: Получение списка {} самых популярных фильмов с id жанра {} и годом релиза {}", count,
-                genreId, year);
-        return films;
+        ranking.sort(Comparator.comparingLong((long[] film) -> -film[0]).thenComparingLong(film -> film[1]));
+        List<Integer> rankedIds = new ArrayList<>(ranking.size());
+        ranking.forEach(film -> rankedIds.add((int) film[1]));
+        return filmAssembler.findByIds(rankedIds);
     }
 
     @Override
-    public List<Film> searchBySubstring(String query, String by) {
-        List<Film> films = new ArrayList<>();
-        String sql;
-        if (by.equalsIgnoreCase("director")) {
-            log.info("ХРАНИЛИЩЕ: Получение фильмов с именем режиссера, содержащим подстроку {}", query);
-            sql = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
-                    "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                    "LEFT JOIN FILMS_DIRECTORS AS FD ON F.FILM_ID = FD.FILM_ID " +
-                    "LEFT JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
-                    "WHERE LOWER(D.DIRECTOR_NAME) LIKE '%" + query.toLowerCase() + "%'" +
-                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID";
-        } else if (by.equalsIgnoreCase("title")) {
-            log.info("ХРАНИЛИЩЕ: Получение фильмов с названием, содержащим подстроку {}", query);
-            sql = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
-                    "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                    "WHERE LOWER(F.FILM_NAME) MARK '%" + query.toLowerCase() + "%'" +
-                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID";
-        } else if (by.equalsIgnoreCase("director,title") || by.equalsIgnoreCase("title,director")) {
-            log.info("ХРАНИЛИЩЕ: Получение фильмов с именем режиссера или названием, содержащим подстроку {}", query);
-            sql = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
-                    "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                    "LEFT JOIN FILMS_DIRECTORS AS FD ON F.FILM_ID = FD.FILM_ID " +
-                    "LEFT JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
-                    "WHERE LOWER(D.DIRECTOR_NAME) MARK '%" + query.toLowerCase() +
-                    "%' OR LOWER(F.FILM_NAME) MARK '%" + query.toLowerCase() + "%' " +
-                    "GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC, F.FILM_ID";
-        } else {
-            throw new UnregisteredDataException("Запрос поиска по параметру " + by + " не найден");
-        }
-
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sql);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
-        }
-        return films;
+    public Set<Integer> getRegisteredFilmIds(Collection<Integer> filmIds) {
+        log.debug("ХРАНИЛИЩЕ: Проверка регистрации {} фильмов в системе", filmIds.size());
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT FILM_ID FROM FILMS WHERE FILM_ID = ANY(?)",
+                Integer.class, (Object) filmIds.toArray(new Integer[0])));
     }
 
     @Override
     public List<Film> findDirectorFilmsByYearOrLikes(int directorId, String sortBy) {
         directorStorage.findById(directorId); // проверка директора на существование
         String sql;
-        List<Film> films = new ArrayList<>();
         if (sortBy.equalsIgnoreCase("year")) {
             sql = "SELECT F.* FROM FILMS AS F " +
                     "JOIN FILMS_DIRECTORS AS FD ON F.FILM_ID = FD.FILM_ID " +
-                    "WHERE FD.DIRECTOR_ID = " + directorId +
-                    " ORDER BY F.FILM_RELEASE_DATE";
+                    "WHERE FD.DIRECTOR_ID = ? ORDER BY F.FILM_RELEASE_DATE";
         } else if (sortBy.equalsIgnoreCase("likes")) {
-            sql = "SELECT F.*, COUNT(L.USER_ID) FROM FILMS AS F " +
+            sql = "SELECT F.* FROM FILMS AS F " +
                     "JOIN FILMS_DIRECTORS AS FD ON F.FILM_ID = FD.FILM_ID " +
-                    "LEFT JOIN MARKS AS L ON F.FILM_ID = L.FILM_ID " +
-                    "WHERE FD.DIRECTOR_ID = " + directorId +
-                    " GROUP BY F.FILM_ID ORDER BY COUNT(L.USER_ID) DESC";
+                    "WHERE FD.DIRECTOR_ID = ? ORDER BY F.RATING_SUM DESC, F.FILM_ID";
         } else {
             throw new UnregisteredDataException("Сортировка по запрошенному параметру не реализована");
         }
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sql);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
-        }
-        return films;
-    }
-
-    private Film filmRowMap(SqlRowSet rs) {
-        log.info("ХРАНИЛИЩЕ: Производится маппинг фильма");
-        Film film = new Film(
-                rs.getInt("FILM_ID"),
-                rs.getString("FILM_NAME"),
-                rs.getString("FILM_DESCRIPTION"),
-                Objects.requireNonNull(rs.getDate("FILM_RELEASE_DATE")).toLocalDate(),
-                rs.getInt("FILM_DURATION"),
-                mpaStorage.findById(rs.getInt("MPA_ID")));
-        film.setGenres(getFilmGenres(film.getId()));
-        film.setDirectors(directorStorage.findDirectorsByFilmId(film.getId()));
-        return film;
-    }
-
-    private Genre genreRowMap(SqlRowSet rs) {
-        log.info("ХРАНИЛИЩЕ: Производится маппинг жанра");
-        return new Genre(
-                rs.getInt("GENRE_ID"),
-                rs.getString("GENRE_NAME")
-        );
+        return filmAssembler.query(sql, directorId);
     }
 
     private List<Genre> getFilmGenres(int filmId) {
         Set<Genre> filmGenres = new TreeSet<>(Comparator.comparingInt(Genre::getId));
         String sqlQuery = "SELECT * FROM GENRES WHERE GENRE_ID IN " +
                 "(SELECT GENRE_ID FROM FILM_GENRES WHERE FILM_ID = ?)";
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
-        while (rs.next()) {
-            filmGenres.add(genreRowMap(rs));
-        }
-        log.info("ХРАНИЛИЩЕ: Получение жарнов для фильма с id {}", filmId);
+        filmGenres.addAll(jdbcTemplate.query(sqlQuery, RowMappers.GENRE, filmId));
+        log.debug("ХРАНИЛИЩЕ: Получение жарнов для фильма с id {}", filmId);
         return new ArrayList<>(filmGenres);
     }
 
-    private SqlRowSet getAllFilms(int filmId) {
-        String sqlQuery = "SELECT * FROM FILMS WHERE FILM_ID = ?";
-        log.info("ХРАНИЛИЩЕ: Получение rowSet фильма с id {}", filmId);
-        return jdbcTemplate.queryForRowSet(sqlQuery, filmId);
+    private boolean isFilmRegistered(int filmId) {
+        log.debug("ХРАНИЛИЩЕ: Проверка регистрации фильма с id {}", filmId);
+        return jdbcTemplate.query("SELECT 1 FROM FILMS WHERE FILM_ID = ?", RowMappers.EXISTS, filmId);
     }
 
     private void fillFilmGenres(Film film) {
-        log.info("ХРАНИЛИЩЕ: Производится добавление жанов для фильма {}", film.getName());
+        log.debug("ХРАНИЛИЩЕ: Производится добавление жанов для фильма {}", film.getName());
         isGenreRegistered(film);
         List<Genre> genres = List.copyOf(film.getGenres());
         String sqlQuery = "INSERT INTO FILM_GENRES (FILM_ID, GENRE_ID) VALUES (?, ?)";
@@ -296,59 +243,27 @@ public class FilmDbStorage implements FilmStorage {
         });
     }
 
+    private void insertPairs(String insertQuery, List<int[]> pairs) {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        String sqlQuery = insertQuery + String.join(", ", Collections.nCopies(pairs.size(), "(?, ?)"));
+        jdbcTemplate.update(sqlQuery, pairs.stream().flatMapToInt(Arrays::stream).boxed().toArray());
+    }
+
     private void deleteFilmGenres(int filmId) {
-        log.info("ХРАНИЛИЩЕ: Производится удаление жанров у фильма с id {}", filmId);
+        log.debug("ХРАНИЛИЩЕ: Производится удаление жанров у фильма с id {}", filmId);
         String sqlQuery = "DELETE FROM FILM_GENRES WHERE FILM_ID = ?";
         jdbcTemplate.update(sqlQuery, filmId);
     }
 
     private void isGenreRegistered(Film film) {
-        log.info("ХРАНИЛИЩЕ: Проверка жанров фильма с id {} на существование", film.getId());
-        String sqlQuery = "SELECT * FROM GENRES WHERE GENRE_ID = ?";
+        log.debug("ХРАНИЛИЩЕ: Проверка жанров фильма с id {} на существование", film.getId());
+        String sqlQuery = "SELECT 1 FROM GENRES WHERE GENRE_ID = ?";
         for (Genre genre : film.getGenres()) {
-            if (!jdbcTemplate.queryForRowSet(sqlQuery, genre.getId()).next()) {
+            if (!jdbcTemplate.query(sqlQuery, RowMappers.EXISTS, genre.getId())) {
                 throw new UnregisteredDataException("Жанр с id " + genre.getId() + " не зарегистрирован в системе");
             }
         }
     }
-
-    private Film makeFilmForList(ResultSet rs) throws SQLException {
-        return new Film(
-                rs.getInt("FILM_ID"),
-                rs.getString("FILM_NAME"),
-                rs.getString("FILM_DESCRIPTION"),
-                rs.getDate("FILM_RELEASE_DATE").toLocalDate(),
-                rs.getInt("FILM_DURATION"),
-                mpaStorage.getMpaRating(rs.getInt("MPA_ID")));
-    }
-
-    @Override
-    public List<Film> commonFilms(int userId, int friendId) {
-        log.info("ХРАНИЛИЩЕ: Получение списка общих фильмов пользователя id={} " +
-                " и его друга id={} отсортированных по популярности.", userId, friendId);
-
-        String sqlQuery = "SELECT t.*        \n" +
-                "            FROM (SELECT f.*, \n" +
-                "                         count(f.film_id) marks\n" +
-                "                    FROM Films f\n" +
-                "                   INNER JOIN MARKS l ON l.film_id = f.film_id  \n" +
-                "                   GROUP BY (f.film_id)) t\n" +
-                "           INNER JOIN MARKS l2 ON l2.film_id = t.film_id AND l2.user_id=?\n" +
-                "          INTERSECT\n" +
-                "          SELECT t.*        \n" +
-                "            FROM (SELECT f.*, \n" +
-                "                         count(f.film_id) marks\n" +
-                "                    FROM Films f\n" +
-                "                   INNER JOIN MARKS l ON l.film_id = f.film_id  \n" +
-                "                   GROUP BY (f.film_id)) t\n" +
-                "           INNER JOIN MARKS l2 ON l2.film_id = t.film_id AND l2.user_id=? \n" +
-                "          ORDER BY likes DESC; ";
-
-        List<Film> films = new ArrayList<>();
-        SqlRowSet rs = jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId);
-        while (rs.next()) {
-            films.add(filmRowMap(rs));
-        }
-        return films;
-    }
 }
@@ -1,29 +1,45 @@
 package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.javafilmorate.model.User;
 import ru.yandex.practicum.javafilmorate.storage.dao.FriendStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FriendGraph;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
+/* Связи читаются из графа дружбы в памяти, из базы догружаются только сами пользователи */
 @Slf4j
-@AllArgsConstructor
 @Repository
 public class FriendsDbStorage implements FriendStorage {
+    private static final int WRITE_LOCKS = 64;
+
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraph friendGraph;
+    /* Запись в базу и в граф для одного пользователя выполняется под одной блокировкой,
+     * чтобы параллельные добавление и удаление друга применялись к графу в том же порядке */
+    private final Object[] writeLocks = new Object[WRITE_LOCKS];
+
+    public FriendsDbStorage(JdbcTemplate jdbcTemplate, FriendGraph friendGraph) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.friendGraph = friendGraph;
+        Arrays.setAll(writeLocks, i -> new Object());
+    }
 
     @Override
     public void addFriend(int userId, int friendId) {
         isRegistered(userId);
         isRegistered(friendId);
-        String sqlQuery = "INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (?, ?)";
-        jdbcTemplate.update(sqlQuery, userId, friendId);
-        log.info(" ХРАНИЛИЩЕ: Пользователь с id {} получил запрос дружбы от пользователя с id {}", userId, friendId);
+        /* Повторный запрос дружбы не создаёт дубликат: пара уникальна */
+        String sqlQuery = "MERGE INTO FRIENDS (USER_ID, FRIEND_ID) KEY (USER_ID, FRIEND_ID) VALUES (?, ?)";
+        synchronized (writeLock(userId)) {
+            jdbcTemplate.update(sqlQuery, userId, friendId);
+            friendGraph.addEdge(userId, friendId);
+        }
+        log.debug("ХРАНИЛИЩЕ: Пользователь с id {} получил запрос дружбы от пользователя с id {}", userId, friendId);
     }
 
     @Override
@@ -31,51 +47,94 @@ public class FriendsDbStorage implements FriendStorage {
         isRegistered(userId);
         isRegistered(friendId);
         String sqlQuery = "DELETE FROM FRIENDS WHERE USER_ID = ? AND FRIEND_ID = ?";
-        jdbcTemplate.update(sqlQuery, userId, friendId);
-        log.info("ХРАНИЛИЩЕ: Пользователь с id {} удалил из друзей пользователя с id {}", userId, friendId);
+        synchronized (writeLock(userId)) {
+            jdbcTemplate.update(sqlQuery, userId, friendId);
+            friendGraph.removeEdge(userId, friendId);
+        }
+        log.debug("ХРАНИЛИЩЕ: Пользователь с id {} удалил из друзей пользователя с id {}", userId, friendId);
     }
 
     @Override
     public List<User> getUserFriends(Integer userId) {
-        isRegistered(userId);
-        log.info("ХРАНИЛИЩЕ: Получение друзей пользователя с id {}", userId);
-        String sqlQuery = "SELECT USERS.* FROM FRIENDS" +
-                " JOIN USERS ON FRIENDS.FRIEND_ID = USERS.USER_ID WHERE FRIENDS.USER_ID = ?";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> new User(
-                        rs.getInt("USER_ID"),
-                        rs.getString("USER_EMAIL"),
-                        rs.getString("USER_LOGIN"),
-                        rs.getString("USER_NAME"),
-                        rs.getDate("USER_BIRTHDAY").toLocalDate(),
-                        null),
-                userId
-        );
+        log.debug("ХРАНИЛИЩЕ: Получение друзей пользователя с id {}", userId);
+        return findUsers(friendGraph.friendIds(userId), userId);
     }
 
     @Override
     public List<User> getCommonsFriends(int userId, int friendId) {
-        isRegistered(userId);
-        isRegistered(friendId);
-        log.info("ХРАНИЛИЩЕ: Получение общих друзей для пользователей с id {} и {}", userId, friendId);
-        String sqlQuery = " SELECT * FROM USERS WHERE USER_ID IN ((SELECT TBL1.FRIEND_ID " +
-                " FROM (SELECT USER_ID, FRIEND_ID FROM FRIENDS WHERE USER_ID = ?) AS TBL1 " +
-                " INNER JOIN (SELECT USER_ID, FRIEND_ID FROM FRIENDS WHERE USER_ID = ?) AS TBL2 " +
-                " ON TBL1.FRIEND_ID = TBL2.FRIEND_ID)) ";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> new User(
-                        rs.getInt("USER_ID"),
-                        rs.getString("USER_EMAIL"),
-                        rs.getString("USER_LOGIN"),
-                        rs.getString("USER_NAME"),
-                        rs.getDate("USER_BIRTHDAY").toLocalDate(),
-                        null),
-                userId, friendId);
+        log.debug("ХРАНИЛИЩЕ: Получение общих друзей для пользователей с id {} и {}", userId, friendId);
+        return findUsers(friendGraph.commonFriendIds(userId, friendId), userId, friendId);
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} возможных знакомых пользователя с id {}", limit, userId);
+        return findUsers(friendGraph.suggestFriends(userId, limit), userId);
+    }
+
+    @Override
+    public List<Integer> getFriendIds(int userId) {
+        log.debug("ХРАНИЛИЩЕ: Получение id друзей пользователя с id {}", userId);
+        return Arrays.stream(friendGraph.friendIds(userId)).boxed().collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Integer, List<Integer>> getFollowerIds(Collection<Integer> userIds) {
+        log.debug("ХРАНИЛИЩЕ: Получение подписчиков {} пользователей", userIds.size());
+        Map<Integer, List<Integer>> followers = new HashMap<>();
+        for (Integer userId : userIds) {
+            int[] followerIds = friendGraph.followerIds(userId);
+            if (followerIds.length > 0) {
+                followers.put(userId, Arrays.stream(followerIds).boxed().collect(Collectors.toList()));
+            }
+        }
+        return followers;
+    }
+
+    @Override
+    public Set<Integer> getUsersWithFollowersOver(int followersCount) {
+        log.debug("ХРАНИЛИЩЕ: Получение пользователей, у которых больше {} подписчиков", followersCount);
+        return friendGraph.usersWithFollowersOver(followersCount);
+    }
+
+    /* Пользователи по id из графа в заданном порядке одним запросом: массив в параметре не меняет текст запроса,
+     * поэтому план кэшируется при любом числе друзей. Проверяемые пользователи запрашиваются тем же запросом
+     * вместо отдельной проверки регистрации */
+    private List<User> findUsers(int[] userIds, int... requiredIds) {
+        Integer[] ids = new Integer[userIds.length + requiredIds.length];
+        for (int i = 0; i < requiredIds.length; i++) {
+            ids[i] = requiredIds[i];
+        }
+        for (int i = 0; i < userIds.length; i++) {
+            ids[requiredIds.length + i] = userIds[i];
+        }
+        Map<Integer, User> usersById = new HashMap<>(ids.length * 4 / 3 + 1);
+        jdbcTemplate.query("SELECT * FROM USERS WHERE USER_ID = ANY(?)", RowMappers.USER, (Object) ids)
+                .forEach(user -> usersById.put(user.getId(), user));
+        for (int requiredId : requiredIds) {
+            if (!usersById.containsKey(requiredId)) {
+                throw new UnregisteredDataException("Пользователь с id " + requiredId +
+                        " не зарегистрирован в системе");
+            }
+        }
+        List<User> users = new ArrayList<>(userIds.length);
+        for (int userId : userIds) {
+            User user = usersById.get(userId);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private Object writeLock(int userId) {
+        return writeLocks[Math.floorMod(userId, WRITE_LOCKS)];
     }
 
     private void isRegistered(int userId) {
-        log.info("ХРАНИЛИЩЕ: Проверка регистрации пользователя в системе");
-        String sqlQuery = "SELECT * FROM USERS WHERE USER_ID = ?";
-        SqlRowSet userRow = jdbcTemplate.queryForRowSet(sqlQuery, userId);
-        if (!userRow.next()) {
+        log.debug("ХРАНИЛИЩЕ: Проверка регистрации пользователя в системе");
+        String sqlQuery = "SELECT 1 FROM USERS WHERE USER_ID = ?";
+        if (!jdbcTemplate.query(sqlQuery, RowMappers.EXISTS, userId)) {
             throw new UnregisteredDataException("Пользователь с id " + userId + " не зарегистрирован в системе");
         }
     }
@@ -5,11 +5,12 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.javafilmorate.model.Film;
 import ru.yandex.practicum.javafilmorate.model.Genre;
 import ru.yandex.practicum.javafilmorate.storage.dao.GenreStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 import java.sql.PreparedStatement;
@@ -24,63 +25,47 @@ import java.util.Map;
 @AllArgsConstructor
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public Genre findById(int genreId) {
-        log.info("ХРАНИЛИЩЕ: Получение жанра по id {}", genreId);
-        SqlRowSet rs = jdbcTemplate.queryForRowSet("SELECT * FROM GENRES WHERE GENRE_ID = ?", genreId);
-        if (rs.next()) {
-            return new Genre(
-                    rs.getInt("GENRE_ID"),
-                    rs.getString("GENRE_NAME")
-            );
-        } else {
-            throw new UnregisteredDataException("Жанр с id " + genreId + " не зарегистрирован в системе");
-        }
+        log.debug("ХРАНИЛИЩЕ: Получение жанра по id {}", genreId);
+        return referenceDataCache.getGenre(genreId).orElseThrow(() ->
+                new UnregisteredDataException("Жанр с id " + genreId + " не зарегистрирован в системе"));
     }
 
     @Override
     public List<Genre> findAll() {
-        log.info("ХРАНИЛИЩЕ: Получение из хранилища списка всех жанров");
-        List<Genre> genres = new ArrayList<>();
-        SqlRowSet rs = jdbcTemplate.queryForRowSet("SELECT * FROM GENRES");
-        while (rs.next()) {
-            Genre genre = new Genre(
-                    rs.getInt("GENRE_ID"),
-                    rs.getString("GENRE_NAME")
-            );
-            genres.add(genre);
-        }
-        return genres;
+        log.debug("ХРАНИЛИЩЕ: Получение из хранилища списка всех жанров");
+        return referenceDataCache.getAllGenres();
     }
 
     @Override
     public Map<Integer, List<Genre>> getFilmsWithGenres() {
         String sql = "SELECT FG.FILM_ID, FG.GENRE_ID, G.GENRE_NAME FROM FILM_GENRES AS FG JOIN GENRES AS G ON FG.GENRE_ID = G.GENRE_ID";
-        //String sql = "SELECT * FROM FILM_GENRES";
-        List<Map<String, Object>> genreDatabaseResult = jdbcTemplate.queryForList(sql);
         Map<Integer, List<Genre>> filmGenres = new HashMap<>();
-        genreDatabaseResult.forEach(map -> filmGenres.computeIfAbsent((Integer) map.get("FILM_ID"), k -> new ArrayList<>())
-                .add(new Genre((Integer) map.get("GENRE_ID"), (String) map.get("GENRE_NAME"))));
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> filmGenres
+                .computeIfAbsent(rs.getInt("FILM_ID"), k -> new ArrayList<>())
+                .add(RowMappers.GENRE.mapRow(rs, 0)));
         return filmGenres;
     }
 
     @Override
     public void reloadGenres(Film film) {
-        log.info("ХРАНИЛИЩЕ: Перезапись-обновление жанров для фильма с {}", film.getName());
+        log.debug("ХРАНИЛИЩЕ: Перезапись-обновление жанров для фильма с {}", film.getName());
         deleteFilmGenre(film);
         addFilmGenre(film);
     }
 
     @Override
     public void deleteFilmGenre(Film film) {
-        log.info("ХРАНИЛИЩЕ: Удаление жанров для фильма {}", film.getName());
+        log.debug("ХРАНИЛИЩЕ: Удаление жанров для фильма {}", film.getName());
         jdbcTemplate.update("DELETE FROM FILM_GENRES WHERE FILM_ID = ?", film.getId());
     }
 
     @Override
     public void addFilmGenre(Film film) {
-        log.info("ХРАНИЛИЩЕ: Добавление жанров фильма в таблицу");
+        log.debug("ХРАНИЛИЩЕ: Добавление жанров фильма в таблицу");
         List<Genre> genres = List.copyOf(film.getGenres());
         if (!genres.isEmpty()) {
             String sqlQuery = "INSERT INTO FILM_GENRES (FILM_ID, GENRE_ID) VALUES (?, ?)";
@@ -3,19 +3,35 @@ package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.javafilmorate.model.Mark;
 import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.RatingMatrix;
+import ru.yandex.practicum.javafilmorate.storage.index.UserMarksIndex;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @AllArgsConstructor
 @Repository
 public class MarkDbStorage implements MarkStorage {
+    private static final int WRITE_LOCKS = 64;
+
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserMarksIndex userMarksIndex;
+    /* Запись оценок пользователя в базу и в индекс выполняется под одной блокировкой, чтобы параллельные
+     * добавление и удаление оценки применялись к индексу в том же порядке. Пакет берёт блокировки
+     * всех своих пользователей по возрастанию номера */
+    private final ReentrantLock[] writeLocks = Stream.generate(ReentrantLock::new)
+            .limit(WRITE_LOCKS)
+            .toArray(ReentrantLock[]::new);
 
     @Override
     public void addMark(Mark mark) {
@@ -23,24 +39,95 @@ public class MarkDbStorage implements MarkStorage {
         int userId = mark.getUserId();
         isFilmRegistered(filmId);
         isUserRegistered(userId);
-        log.info("ХРАНИЛИЩЕ: Сохранение отметки\"mark\" фильму с id {} от пользователя с id {}", filmId, userId);
+        log.debug("ХРАНИЛИЩЕ: Сохранение отметки\"mark\" фильму с id {} от пользователя с id {}", filmId, userId);
         String sqlQuery = "INSERT INTO MARKS (FILM_ID, USER_ID, RATING) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sqlQuery, filmId, userId, mark.getRating());
+        withUserLocks(List.of(userId), () -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(sqlQuery, filmId, userId, mark.getRating());
+                jdbcTemplate.update("UPDATE FILMS SET MARK_COUNT = MARK_COUNT + 1, RATING_SUM = RATING_SUM + ? " +
+                        "WHERE FILM_ID = ?", mark.getRating(), filmId);
+            });
+            userMarksIndex.addMark(userId, filmId);
+            return null;
+        });
     }
 
     @Override
-    public void deleteMark(int filmId, int userId) {
+    public Mark deleteMark(int filmId, int userId) {
         isFilmRegistered(filmId);
         isUserRegistered(userId);
-        log.info("ХРАНИЛИЩЕ: Удаление отметки\"mark\" у фильма с id {} от пользователя с id {}", filmId, userId);
-        String sqlQuery = "DELETE FROM MARKS WHERE FILM_ID = ? AND USER_ID = ?";
-        jdbcTemplate.update(sqlQuery, filmId, userId);
+        log.debug("ХРАНИЛИЩЕ: Удаление отметки\"mark\" у фильма с id {} от пользователя с id {}", filmId, userId);
+        return withUserLocks(List.of(userId), () -> {
+            Mark deleted = transactionTemplate.execute(status -> {
+                List<Integer> ratings = jdbcTemplate.queryForList("SELECT RATING FROM MARKS WHERE FILM_ID = ? " +
+                        "AND USER_ID = ? FOR UPDATE", Integer.class, filmId, userId);
+                if (ratings.isEmpty()) {
+                    return null;
+                }
+                String sqlQuery = "DELETE FROM MARKS WHERE FILM_ID = ? AND USER_ID = ?";
+                jdbcTemplate.update(sqlQuery, filmId, userId);
+                jdbcTemplate.update("UPDATE FILMS SET MARK_COUNT = MARK_COUNT - 1, RATING_SUM = RATING_SUM - ? " +
+                        "WHERE FILM_ID = ?", ratings.get(0), filmId);
+                return new Mark(filmId, userId, ratings.get(0));
+            });
+            if (deleted != null) {
+                userMarksIndex.removeMark(userId, filmId);
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public List<Mark> mergeMarks(List<Mark> marks) {
+        log.debug("ХРАНИЛИЩЕ: Пакетное сохранение {} отметок \"mark\"", marks.size());
+        if (marks.isEmpty()) {
+            return List.of();
+        }
+        /* Пары (FILM_ID, USER_ID) в пакете уникальны */
+        Set<Integer> userIds = marks.stream().map(Mark::getUserId).collect(Collectors.toSet());
+        return withUserLocks(userIds, () -> {
+            List<Mark> previousMarks = transactionTemplate.execute(status -> {
+                /* Прежние оценки нужны для пересчёта агрегатов фильмов разницей, а не полным подсчётом */
+                /* Пары передаются двумя массивами одинаковой длины: текст запроса не зависит от размера пакета */
+                String selectQuery = "SELECT M.FILM_ID, M.USER_ID, M.RATING FROM UNNEST(?, ?) AS K(FILM_ID, USER_ID) " +
+                        "JOIN MARKS AS M ON M.FILM_ID = K.FILM_ID AND M.USER_ID = K.USER_ID FOR UPDATE";
+                Integer[] markFilmIds = marks.stream().map(Mark::getFilmId).toArray(Integer[]::new);
+                Integer[] markUserIds = marks.stream().map(Mark::getUserId).toArray(Integer[]::new);
+                List<Mark> previous = jdbcTemplate.query(selectQuery,
+                        (rs, rowNum) -> new Mark(rs.getInt("FILM_ID"), rs.getInt("USER_ID"), rs.getInt("RATING")),
+                        markFilmIds, markUserIds);
+                jdbcTemplate.batchUpdate("MERGE INTO MARKS (FILM_ID, USER_ID, RATING) KEY (FILM_ID, USER_ID) " +
+                                "VALUES (?, ?, ?)",
+                        marks.stream()
+                                .map(mark -> new Object[]{mark.getFilmId(), mark.getUserId(), mark.getRating()})
+                                .collect(Collectors.toList()));
+                Map<Integer, long[]> deltas = new HashMap<>();
+                for (Mark mark : marks) {
+                    long[] delta = deltas.computeIfAbsent(mark.getFilmId(), k -> new long[2]);
+                    delta[0]++;
+                    delta[1] += mark.getRating();
+                }
+                for (Mark mark : previous) {
+                    long[] delta = deltas.get(mark.getFilmId());
+                    delta[0]--;
+                    delta[1] -= mark.getRating();
+                }
+                jdbcTemplate.batchUpdate("UPDATE FILMS SET MARK_COUNT = MARK_COUNT + ?, " +
+                                "RATING_SUM = RATING_SUM + ? WHERE FILM_ID = ?",
+                        deltas.entrySet().stream()
+                                .map(entry -> new Object[]{entry.getValue()[0], entry.getValue()[1], entry.getKey()})
+                                .collect(Collectors.toList()));
+                return previous;
+            });
+            marks.forEach(mark -> userMarksIndex.addMark(mark.getUserId(), mark.getFilmId()));
+            return previousMarks;
+        });
     }
 
     @Override
     public List<Mark> getMarks(int filmId) {
         isFilmRegistered(filmId);
-        log.info("ХРАНИЛИЩЕ: Получение отметок \"mark\" для фильма с id {}", filmId);
+        log.debug("ХРАНИЛИЩЕ: Получение отметок \"mark\" для фильма с id {}", filmId);
         String sqlQuery = "SELECT * FROM MARKS WHERE FILM_ID = ?";
         return jdbcTemplate.query(sqlQuery,
                 (rs, rowNum) -> new Mark(filmId, rs.getInt("USER_ID"), rs.getInt("RATING")),
@@ -48,30 +135,87 @@ public class MarkDbStorage implements MarkStorage {
     }
 
     @Override
-    public Map<Integer, Set<Mark>> getAllMarks() {
-        log.info("ХРАНИЛИЩЕ: Получение карты всех оценок");
-        List<Map<String, Object>> marksDatabaseResult = jdbcTemplate.queryForList("SELECT * FROM MARKS");
-        Map<Integer, Set<Mark>> marks = new HashMap<>();
-        for (Map<String, Object> map : marksDatabaseResult)
-            marks.computeIfAbsent((Integer) map.get("film_id"), k -> new HashSet<>())
-                    .add(new Mark((Integer) map.get("FILM_ID"), (Integer) map.get("USER_ID"), (Integer) map.get("RATING")));
-        return marks;
+    public RatingMatrix getNeighbourhoodMatrix(int userId) {
+        log.debug("ХРАНИЛИЩЕ: Получение матрицы оценок соседей пользователя с id {}", userId);
+        /* Соседи - пользователи, оценившие хотя бы один фильм из оценённых запрашивающим */
+        String sqlQuery = "SELECT M.USER_ID, M.FILM_ID, M.RATING FROM MARKS AS M " +
+                "WHERE M.USER_ID IN (SELECT DISTINCT N.USER_ID FROM MARKS AS N " +
+                "JOIN MARKS AS R ON N.FILM_ID = R.FILM_ID WHERE R.USER_ID = ?) " +
+                "ORDER BY M.USER_ID, M.FILM_ID";
+        RatingMatrix.Builder builder = RatingMatrix.builder(0);
+        jdbcTemplate.query(sqlQuery, rs -> {
+            builder.add(rs.getInt("USER_ID"), rs.getInt("FILM_ID"), rs.getInt("RATING"));
+        }, userId);
+        return builder.build();
+    }
+
+    @Override
+    public List<Integer> getMostActiveUsers(int count) {
+        log.debug("ХРАНИЛИЩЕ: Получение {} пользователей с наибольшим числом оценок", count);
+        String sqlQuery = "SELECT USER_ID FROM MARKS GROUP BY USER_ID ORDER BY COUNT(*) DESC, USER_ID LIMIT ?";
+        return jdbcTemplate.queryForList(sqlQuery, Integer.class, count);
+    }
+
+    @Override
+    public int reconcileRatingAggregates() {
+        log.debug("ХРАНИЛИЩЕ: Сверка агрегатов оценок фильмов с таблицей MARKS");
+        String sqlQuery = "SELECT F.FILM_ID, F.MARK_COUNT, F.RATING_SUM, " +
+                "COUNT(M.USER_ID) AS ACTUAL_COUNT, COALESCE(SUM(M.RATING), 0) AS ACTUAL_SUM FROM FILMS AS F " +
+                "LEFT JOIN MARKS AS M ON F.FILM_ID = M.FILM_ID GROUP BY F.FILM_ID " +
+                "HAVING F.MARK_COUNT <> COUNT(M.USER_ID) OR F.RATING_SUM <> COALESCE(SUM(M.RATING), 0)";
+        /* Исправление применяется, только если агрегаты фильма не изменились после чтения: иначе параллельная
+         * запись уже сдвинула их разницей, и абсолютное значение затёрло бы её. Такой фильм сверится в следующий раз */
+        return transactionTemplate.execute(status -> {
+            List<Object[]> corrections = jdbcTemplate.query(sqlQuery, (rs, rowNum) -> {
+                log.warn("ХРАНИЛИЩЕ: Расхождение агрегатов у фильма с id {}: MARK_COUNT {} -> {}, RATING_SUM {} -> {}",
+                        rs.getInt("FILM_ID"), rs.getInt("MARK_COUNT"), rs.getInt("ACTUAL_COUNT"),
+                        rs.getLong("RATING_SUM"), rs.getLong("ACTUAL_SUM"));
+                return new Object[]{rs.getInt("ACTUAL_COUNT"), rs.getLong("ACTUAL_SUM"), rs.getInt("FILM_ID"),
+                        rs.getInt("MARK_COUNT"), rs.getLong("RATING_SUM")};
+            });
+            int[] updated = jdbcTemplate.batchUpdate("UPDATE FILMS SET MARK_COUNT = ?, RATING_SUM = ? " +
+                    "WHERE FILM_ID = ? AND MARK_COUNT = ? AND RATING_SUM = ?", corrections);
+            int corrected = Arrays.stream(updated).sum();
+            if (corrected < corrections.size()) {
+                log.debug("ХРАНИЛИЩЕ: Агрегаты {} фильмов изменились во время сверки, исправление отложено",
+                        corrections.size() - corrected);
+            }
+            return corrected;
+        });
+    }
+
+    private <T> T withUserLocks(Collection<Integer> userIds, Supplier<T> action) {
+        int[] stripes = userIds.stream()
+                .mapToInt(userId -> Math.floorMod(userId, WRITE_LOCKS))
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int stripe : stripes) {
+                writeLocks[stripe].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                writeLocks[stripes[i]].unlock();
+            }
+        }
     }
 
     private void isFilmRegistered(int filmId) {
-        log.info("ХРАНИЛИЩЕ: Проверка регистрации фильма с {} в системе", filmId);
-        String sqlQuery = "SELECT * FROM FILMS WHERE FILM_ID = ?";
-        SqlRowSet filmRow = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
-        if (!filmRow.next()) {
+        log.debug("ХРАНИЛИЩЕ: Проверка регистрации фильма с {} в системе", filmId);
+        String sqlQuery = "SELECT 1 FROM FILMS WHERE FILM_ID = ?";
+        if (!jdbcTemplate.query(sqlQuery, RowMappers.EXISTS, filmId)) {
             throw new UnregisteredDataException("Фильм с id " + filmId + " не зарегистрирован в системе");
         }
     }
 
     private void isUserRegistered(int userId) {
-        log.info("ХРАНИЛИЩЕ: Проверка регистрации пользователя с id {} в системе", userId);
-        String sqlQuery = "SELECT * FROM USERS WHERE USER_ID = ?";
-        SqlRowSet userRow = jdbcTemplate.queryForRowSet(sqlQuery, userId);
-        if (!userRow.next()) {
+        log.debug("ХРАНИЛИЩЕ: Проверка регистрации пользователя с id {} в системе", userId);
+        String sqlQuery = "SELECT 1 FROM USERS WHERE USER_ID = ?";
+        if (!jdbcTemplate.query(sqlQuery, RowMappers.EXISTS, userId)) {
             throw new UnregisteredDataException("Пользователь с id " + userId + " не зарегистрирован в системе");
         }
     }
@@ -2,17 +2,15 @@ package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.javafilmorate.model.Review;
 import ru.yandex.practicum.javafilmorate.storage.dao.ReviewStorage;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -22,22 +20,27 @@ import java.util.stream.Collectors;
 @Repository
 public class ReviewDbStorage implements ReviewStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
 
-    public ReviewDbStorage(JdbcTemplate jdbcTemplate) {
+    public ReviewDbStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
     public Review add(Review review) {
-        log.info("ХРАНИЛИЩЕ: Добавление отзыва в хранилище от пользователя с id {} на фильм с id {}",
+        log.debug("ХРАНИЛИЩЕ: Добавление отзыва в хранилище от пользователя с id {} на фильм с id {}",
                 review.getUserId(), review.getFilmId());
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(Objects.requireNonNull(jdbcTemplate.getDataSource()))
                 .withTableName("reviews")
+                .usingColumns("CONTENT", "IS_POSITIVE", "USER_ID", "FILM_ID")
                 .usingGeneratedKeyColumns("ID");
+        /* USEFUL не передаётся: у нового отзыва полезность 0 по умолчанию столбца и меняется только голосами */
         Map<String, Object> params = Map.of("CONTENT", review.getContent(), "IS_POSITIVE", review.getIsPositive(),
                 "USER_ID", review.getUserId(), "FILM_ID", review.getFilmId());
         try {
             review.setReviewId(simpleJdbcInsert.executeAndReturnKey(params).intValue());
+            review.setUseful(0);
             return review;
         } catch (DataIntegrityViolationException e) {
             throw new UnregisteredDataException("Определен несуществующий пользователь или фильм");
@@ -46,7 +49,7 @@ public class ReviewDbStorage implements ReviewStorage {
 
     @Override
     public Review update(Review review) {
-        log.info("ХРАНИЛИЩЕ: Обновление данных по отзыву с id {}", review.getReviewId());
+        log.debug("ХРАНИЛИЩЕ: Обновление данных по отзыву с id {}", review.getReviewId());
         Review updateReview = findReviewByID(review.getReviewId());
         if (updateReview == null)
             return null;
@@ -55,67 +58,80 @@ public class ReviewDbStorage implements ReviewStorage {
         return findReviewByID(review.getReviewId());
     }
 
+    /* Голос пользователя в REVIEW_VOTES единственный. Возвращается изменение полезности отзыва:
+     * ±1 для нового голоса, ±2 при смене лайка на дизлайк и обратно, 0 для повторного голоса */
     @Override
-    public void updateUseful(Review review) {
-        log.info("ХРАНИЛИЩЕ: Обновление данных о полезности отзыва с id {}", review.getReviewId());
-        findReviewByID(review.getReviewId());
-        jdbcTemplate.update("UPDATE reviews SET USEFUL = ?  WHERE ID = ?",
-                review.getUseful(), review.getReviewId());
+    public int addVote(int reviewID, int userID, int vote) {
+        log.debug("ХРАНИЛИЩЕ: Голос {} пользователя с id {} за отзыв с id {}", vote, userID, reviewID);
+        while (true) {
+            try {
+                jdbcTemplate.update("INSERT INTO REVIEW_VOTES (REVIEW_ID, USER_ID, VOTE) VALUES (?, ?, ?)",
+                        reviewID, userID, vote);
+                return vote;
+            } catch (DuplicateKeyException e) {
+                if (jdbcTemplate.update("UPDATE REVIEW_VOTES SET VOTE = ? WHERE REVIEW_ID = ? AND USER_ID = ? " +
+                        "AND VOTE <> ?", vote, reviewID, userID, vote) > 0) {
+                    return 2 * vote;
+                }
+                if (Boolean.TRUE.equals(jdbcTemplate.query("SELECT 1 FROM REVIEW_VOTES WHERE REVIEW_ID = ? " +
+                        "AND USER_ID = ? AND VOTE = ?", RowMappers.EXISTS, reviewID, userID, vote))) {
+                    return 0;
+                }
+                /* Голос отозван параллельным запросом того же пользователя, вставляем заново */
+            } catch (DataIntegrityViolationException e) {
+                throw new UnregisteredDataException("Определен несуществующий пользователь или отзыв");
+            }
+        }
     }
 
     @Override
-    public List<Review> findAllReviews(int count) {
-        log.info("ХРАНИЛИЩЕ: Получение списка {} самых полезных отзывов", count);
-        return jdbcTemplate.query("SELECT * FROM reviews", (rs, rowNum) -> makeReviewForList(rs))
-                .stream()
-                .sorted(Comparator.comparingInt(Review::getUseful).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+    public int removeVote(int reviewID, int userID, int vote) {
+        log.debug("ХРАНИЛИЩЕ: Отзыв голоса {} пользователя с id {} за отзыв с id {}", vote, userID, reviewID);
+        return -vote * jdbcTemplate.update("DELETE FROM REVIEW_VOTES WHERE REVIEW_ID = ? AND USER_ID = ? " +
+                "AND VOTE = ?", reviewID, userID, vote);
     }
 
     @Override
-    public List<Review> findReviewsByFilmID(int filmID, int count) {
-        log.info("ХРАНИЛИЩЕ: Получение списка {} самых полезных отзывов на фильм с id {}", count, filmID);
-        return jdbcTemplate.query("SELECT * FROM reviews WHERE FILM_ID = ?", (rs, rowNum) -> makeReviewForList(rs), filmID)
-                .stream()
-                .sorted(Comparator.comparingInt(Review::getUseful).reversed())
-                .limit(count)
-                .collect(Collectors.toList());
+    public void addUseful(Map<Integer, Long> deltas) {
+        log.debug("ХРАНИЛИЩЕ: Изменение полезности {} отзывов", deltas.size());
+        /* Пакет записывается целиком или не записывается, чтобы его можно было повторить */
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "UPDATE reviews SET USEFUL = USEFUL + ? WHERE ID = ?", deltas.entrySet().stream()
+                        .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                        .collect(Collectors.toList())));
     }
 
+    /* Курсор — полезность и id последнего отзыва предыдущей страницы. Условие USEFUL <= ? задает
+     * диапазон по индексу, остальная часть отсекает уже выданные отзывы с той же полезностью */
     @Override
-    public Review findReviewByID(int reviewID) {
-        log.info("ХРАНИЛИЩЕ: Получение отзыва по id {}", reviewID);
-        return makeReview(jdbcTemplate.queryForRowSet("SELECT * FROM reviews WHERE ID = ? LIMIT 1", reviewID));
+    public List<Review> findAllReviews(int afterUseful, int afterId, int count) {
+        log.debug("ХРАНИЛИЩЕ: Получение списка {} самых полезных отзывов после отзыва с полезностью {} и id {}",
+                count, afterUseful, afterId);
+        return jdbcTemplate.query("SELECT * FROM reviews WHERE USEFUL <= ? AND (USEFUL < ? OR ID > ?) " +
+                        "ORDER BY USEFUL DESC, ID LIMIT ?", RowMappers.REVIEW,
+                afterUseful, afterUseful, afterId, count);
     }
 
     @Override
-    public void removeReview(int reviewID) {
-        log.info("ХРАНИЛИЩЕ: Удаление из хранилища отзыва с id {}", reviewID);
-        jdbcTemplate.update("DELETE FROM reviews WHERE ID = ?", reviewID);
+    public List<Review> findReviewsByFilmID(int filmID, int afterUseful, int afterId, int count) {
+        log.debug("ХРАНИЛИЩЕ: Получение списка {} самых полезных отзывов на фильм с id {} " +
+                "после отзыва с полезностью {} и id {}", count, filmID, afterUseful, afterId);
+        return jdbcTemplate.query("SELECT * FROM reviews WHERE FILM_ID = ? AND USEFUL <= ? " +
+                        "AND (USEFUL < ? OR ID > ?) ORDER BY USEFUL DESC, ID LIMIT ?", RowMappers.REVIEW,
+                filmID, afterUseful, afterUseful, afterId, count);
     }
 
-    private Review makeReviewForList(ResultSet rs) throws SQLException {
-        return new Review(
-                rs.getInt("ID"),
-                rs.getString("CONTENT"),
-                rs.getBoolean("IS_POSITIVE"),
-                rs.getInt("USER_ID"),
-                rs.getInt("FILM_ID"),
-                rs.getInt("USEFUL"));
+    @Override
+    public Review findReviewByID(int reviewID) {
+        log.debug("ХРАНИЛИЩЕ: Получение отзыва по id {}", reviewID);
+        List<Review> reviews = jdbcTemplate.query("SELECT * FROM reviews WHERE ID = ?", RowMappers.REVIEW, reviewID);
+        return reviews.isEmpty() ? null : reviews.get(0);
     }
 
-    private Review makeReview(SqlRowSet reviewRows) {
-        Review review = null;
-        if (reviewRows.next()) {
-            review = new Review(
-                    reviewRows.getInt("ID"),
-                    reviewRows.getString("CONTENT"),
-                    reviewRows.getBoolean("IS_POSITIVE"),
-                    reviewRows.getInt("USER_ID"),
-                    reviewRows.getInt("FILM_ID"),
-                    reviewRows.getInt("USEFUL"));
-        }
-        return review;
+    @Override
+    public void removeReview(int reviewID) {
+        log.debug("ХРАНИЛИЩЕ: Удаление из хранилища отзыва с id {}", reviewID);
+        jdbcTemplate.update("DELETE FROM reviews WHERE ID = ?", reviewID);
     }
+
 }
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.javafilmorate.model.*;
+
+import java.sql.ResultSet;
+
+/* Общие маппинги строк: без состояния, читают текущую строку курсора без промежуточного копирования */
+public final class RowMappers {
+    public static final RowMapper<Film> FILM = (rs, rowNum) -> new Film(
+            rs.getInt("FILM_ID"),
+            rs.getString("FILM_NAME"),
+            rs.getString("FILM_DESCRIPTION"),
+            rs.getDate("FILM_RELEASE_DATE").toLocalDate(),
+            rs.getInt("FILM_DURATION"),
+            new Mpa(rs.getInt("MPA_ID"), null));
+
+    public static final RowMapper<User> USER = (rs, rowNum) -> new User(
+            rs.getInt("USER_ID"),
+            rs.getString("USER_EMAIL"),
+            rs.getString("USER_LOGIN"),
+            rs.getString("USER_NAME"),
+            rs.getDate("USER_BIRTHDAY").toLocalDate(),
+            null);
+
+    public static final RowMapper<Mpa> MPA = (rs, rowNum) -> new Mpa(
+            rs.getInt("MPA_ID"),
+            rs.getString("MPA_NAME"));
+
+    public static final RowMapper<Genre> GENRE = (rs, rowNum) -> new Genre(
+            rs.getInt("GENRE_ID"),
+            rs.getString("GENRE_NAME"));
+
+    public static final RowMapper<Director> DIRECTOR = (rs, rowNum) -> new Director(
+            rs.getInt("DIRECTOR_ID"),
+            rs.getString("DIRECTOR_NAME"));
+
+    public static final RowMapper<Review> REVIEW = (rs, rowNum) -> new Review(
+            rs.getInt("ID"),
+            rs.getString("CONTENT"),
+            rs.getBoolean("IS_POSITIVE"),
+            rs.getInt("USER_ID"),
+            rs.getInt("FILM_ID"),
+            rs.getInt("USEFUL"));
+
+    public static final RowMapper<Event> EVENT = (rs, rowNum) -> Event.builder()
+            .eventId(rs.getInt("EVENT_ID"))
+            .eventType(EventType.valueOf(rs.getString("EVENT_TYPE")))
+            .operation(OperationType.valueOf(rs.getString("OPERATION_TYPE")))
+            .entityId(rs.getInt("ENTITY_ID"))
+            .userId(rs.getInt("USER_ID"))
+            .timestamp(rs.getLong("EVENT_TIME"))
+            .build();
+
+    /* Для проверок существования: читается только первая строка */
+    public static final ResultSetExtractor<Boolean> EXISTS = ResultSet::next;
+
+    private RowMappers() {
+    }
+}
@@ -3,20 +3,27 @@ package ru.yandex.practicum.javafilmorate.storage.dao.implementation;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.javafilmorate.model.Mark;
 import ru.yandex.practicum.javafilmorate.model.User;
 import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
 @AllArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public User addUser(User user) {
@@ -26,7 +33,7 @@ public class UserDbStorage implements UserStorage {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        log.info("ХРАНИЛИЩЕ: Cоздание пользователя с id {}", user.getId());
+        log.debug("ХРАНИЛИЩЕ: Cоздание пользователя с id {}", user.getId());
         SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
                 .withTableName("USERS")
                 .usingGeneratedKeyColumns("USER_ID");
@@ -39,7 +46,7 @@ public class UserDbStorage implements UserStorage {
         if (user.getId() == null) {
             throw new UnregisteredDataException("При обновлении данных передан пользователь без id");
         }
-        log.info("ХРАНИЛИЩЕ: Обновление пользователя с id {}", user.getId());
+        log.debug("ХРАНИЛИЩЕ: Обновление пользователя с id {}", user.getId());
         if (findById(user.getId()) != null) {
             String sqlQuery = "UPDATE USERS SET USER_EMAIL = ?, USER_LOGIN = ?, USER_NAME = ?, USER_BIRTHDAY = ? " +
                     "WHERE USER_ID = ?";
@@ -56,46 +63,70 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public boolean deleteUser(int userId) {
-        log.info("ХРАНИЛИЩЕ: Удаление пользователя с id {}", userId);
+    public List<Mark> deleteUser(int userId) {
+        log.debug("ХРАНИЛИЩЕ: Удаление пользователя с id {}", userId);
         String sqlQuery = "DELETE FROM USERS WHERE USER_ID = ?";
-        return jdbcTemplate.update(sqlQuery, userId) > 0;
+        return transactionTemplate.execute(status -> {
+            /* Оценки пользователя удаляются каскадно, поэтому агрегаты фильмов уменьшаются заранее
+             * на те же оценки, что возвращаются для обновления индексов */
+            List<Mark> marks = jdbcTemplate.query("SELECT FILM_ID, RATING FROM MARKS WHERE USER_ID = ? FOR UPDATE",
+                    (rs, rowNum) -> new Mark(rs.getInt("FILM_ID"), userId, rs.getInt("RATING")), userId);
+            jdbcTemplate.batchUpdate("UPDATE FILMS SET MARK_COUNT = MARK_COUNT - 1, RATING_SUM = RATING_SUM - ? " +
+                    "WHERE FILM_ID = ?", marks, marks.size(), (ps, mark) -> {
+                ps.setInt(1, mark.getRating());
+                ps.setInt(2, mark.getFilmId());
+            });
+            /* Так же снимаются голоса пользователя с полезности отзывов */
+            jdbcTemplate.update("UPDATE REVIEWS AS R SET USEFUL = USEFUL - " +
+                    "(SELECT V.VOTE FROM REVIEW_VOTES AS V WHERE V.REVIEW_ID = R.ID AND V.USER_ID = ?) " +
+                    "WHERE R.ID IN (SELECT REVIEW_ID FROM REVIEW_VOTES WHERE USER_ID = ?)", userId, userId);
+            return jdbcTemplate.update(sqlQuery, userId) > 0 ? marks : null;
+        });
     }
 
     @Override
     public User findById(Integer userId) {
-        log.info("ХРАНИЛИЩЕ: Получение пользователя по id {}", userId);
+        log.debug("ХРАНИЛИЩЕ: Получение пользователя по id {}", userId);
         if (userId == null) {
             throw new UnregisteredDataException("При поиске пользователя был передан id равный null");
         }
-        User user;
-        SqlRowSet rs = jdbcTemplate.queryForRowSet("SELECT * FROM USERS WHERE USER_ID = ?", userId);
-        if (rs.first()) {
-            user = new User(
-                    rs.getInt("USER_ID"),
-                    rs.getString("USER_EMAIL"),
-                    rs.getString("USER_LOGIN"),
-                    rs.getString("USER_NAME"),
-                    rs.getDate("USER_BIRTHDAY").toLocalDate(),
-                    null
-            );
-        } else {
+        List<User> users = jdbcTemplate.query("SELECT * FROM USERS WHERE USER_ID = ?", RowMappers.USER, userId);
+        if (users.isEmpty()) {
             throw new UnregisteredDataException("Пользователь с id " + userId + " не зарегистрирован в системе");
         }
-        return user;
+        return users.get(0);
     }
 
     @Override
     public List<User> findAll() {
-        log.info("ХРАНИЛИЩЕ: Получение списка всех пользователей");
+        log.debug("ХРАНИЛИЩЕ: Получение списка всех пользователей");
         String sqlQuery = "SELECT * FROM USERS";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> new User(
-                rs.getInt("USER_ID"),
-                rs.getString("USER_EMAIL"),
-                rs.getString("USER_LOGIN"),
-                rs.getString("USER_NAME"),
-                rs.getDate("USER_BIRTHDAY").toLocalDate(),
-                null)
-        );
+        return jdbcTemplate.query(sqlQuery, RowMappers.USER);
+    }
+
+    @Override
+    public List<User> findAll(int afterId, int limit) {
+        log.debug("ХРАНИЛИЩЕ: Получение списка {} пользователей с id больше {}", limit, afterId);
+        String sqlQuery = "SELECT * FROM USERS WHERE USER_ID > ? ORDER BY USER_ID LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, RowMappers.USER, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        log.debug("ХРАНИЛИЩЕ: Потоковая выгрузка всех пользователей");
+        String sqlQuery = "SELECT * FROM USERS ORDER BY USER_ID";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(RowMappers.USER.mapRow(rs, 0)));
+    }
+
+    @Override
+    public Set<Integer> getRegisteredUserIds(Collection<Integer> userIds) {
+        log.debug("ХРАНИЛИЩЕ: Проверка регистрации {} пользователей в системе", userIds.size());
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT USER_ID FROM USERS WHERE USER_ID = ANY(?)",
+                Integer.class, (Object) userIds.toArray(new Integer[0])));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,285 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Genre;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class FilmPopularityIndex {
+    private static final Comparator<FilmScore> BY_POPULARITY = Comparator
+            .comparingLong((FilmScore filmScore) -> filmScore.score).reversed()
+            .thenComparingInt(filmScore -> filmScore.filmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /* Изменения, записанные в базу, попадают в индекс уже после коммита. Перезагрузка ждёт незавершённые
+     * изменения и не пускает новые, иначе снимок из базы потеряет изменение или учтёт его дважды */
+    private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+    private final Map<Integer, FilmScore> scores = new HashMap<>();
+    private final NavigableSet<FilmScore> ranking = new TreeSet<>(BY_POPULARITY);
+    private final Map<Integer, NavigableSet<FilmScore>> rankingByGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<FilmScore>> rankingByYear = new HashMap<>();
+
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void reload() {
+        reloadLock.writeLock().lock();
+        try {
+            load();
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+    }
+
+    /* Запись в базу и следующее за ней изменение индекса не пересекаются с перезагрузкой */
+    public <T> T update(Supplier<T> update) {
+        reloadLock.readLock().lock();
+        try {
+            return update.get();
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    public void runUpdate(Runnable update) {
+        reloadLock.readLock().lock();
+        try {
+            update.run();
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    private void load() {
+        log.info("ИНДЕКС: Загрузка рейтинга популярности фильмов");
+        Map<Integer, FilmScore> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT FILM_ID, YEAR(FILM_RELEASE_DATE) AS RELEASE_YEAR, RATING_SUM FROM FILMS", rs -> {
+            int filmId = rs.getInt("FILM_ID");
+            loaded.put(filmId, new FilmScore(filmId, rs.getLong("RATING_SUM"), rs.getInt("RELEASE_YEAR"),
+                    new int[0]));
+        });
+        Map<Integer, List<Integer>> filmGenres = new HashMap<>();
+        jdbcTemplate.query("SELECT FILM_ID, GENRE_ID FROM FILM_GENRES", rs -> {
+            filmGenres.computeIfAbsent(rs.getInt("FILM_ID"), k -> new ArrayList<>()).add(rs.getInt("GENRE_ID"));
+        });
+        filmGenres.forEach((filmId, genreIds) -> {
+            FilmScore filmScore = loaded.get(filmId);
+            if (filmScore != null) {
+                loaded.put(filmId, new FilmScore(filmId, filmScore.score, filmScore.year,
+                        genreIds.stream().mapToInt(Integer::intValue).toArray()));
+            }
+        });
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            ranking.clear();
+            rankingByGenre.clear();
+            rankingByYear.clear();
+            loaded.values().forEach(this::insert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putFilm(Film film) {
+        int[] genreIds = film.getGenres().stream().mapToInt(Genre::getId).distinct().toArray();
+        lock.writeLock().lock();
+        try {
+            FilmScore old = remove(film.getId());
+            insert(new FilmScore(film.getId(), old == null ? 0 : old.score, film.getReleaseDate().getYear(),
+                    genreIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addRating(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            FilmScore old = remove(filmId);
+            if (old != null) {
+                insert(new FilmScore(filmId, old.score + delta, old.year, old.genreIds));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getScore(int filmId) {
+        lock.readLock().lock();
+        try {
+            FilmScore filmScore = scores.get(filmId);
+            return filmScore == null ? 0 : filmScore.score;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getPopular(int count) {
+        lock.readLock().lock();
+        try {
+            List<Integer> filmIds = new ArrayList<>(Math.min(count, ranking.size()));
+            for (FilmScore filmScore : ranking) {
+                if (filmIds.size() == count || filmScore.score == 0) {
+                    break;
+                }
+                filmIds.add(filmScore.filmId);
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getPopularByGenre(int count, int genreId) {
+        lock.readLock().lock();
+        try {
+            return top(rankingByGenre.get(genreId), count, filmScore -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getPopularByYear(int count, int year) {
+        lock.readLock().lock();
+        try {
+            return top(rankingByYear.get(year), count, filmScore -> true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getPopularByGenreAndYear(int count, int genreId, int year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<FilmScore> genreRanking = rankingByGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+            NavigableSet<FilmScore> yearRanking = rankingByYear.getOrDefault(year, Collections.emptyNavigableSet());
+            /* Перебираем меньший из двух подындексов и фильтруем по второму условию */
+            if (genreRanking.size() <= yearRanking.size()) {
+                return top(genreRanking, count, filmScore -> filmScore.year == year);
+            }
+            return top(yearRanking, count, filmScore -> filmScore.hasGenre(genreId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Фильмы в порядке рейтинга популярности. Фильмы, которых ещё нет в рейтинге, идут в конце в исходном порядке */
+    public List<Integer> sortByPopularity(int[] filmIds) {
+        List<FilmScore> filmScores = new ArrayList<>(filmIds.length);
+        List<Integer> unranked = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int filmId : filmIds) {
+                FilmScore filmScore = scores.get(filmId);
+                if (filmScore != null) {
+                    filmScores.add(filmScore);
+                } else {
+                    unranked.add(filmId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        filmScores.sort(BY_POPULARITY);
+        List<Integer> sorted = new ArrayList<>(filmIds.length);
+        filmScores.forEach(filmScore -> sorted.add(filmScore.filmId));
+        sorted.addAll(unranked);
+        return sorted;
+    }
+
+    private List<Integer> top(NavigableSet<FilmScore> subRanking, int count,
+                              Predicate<FilmScore> filter) {
+        List<Integer> filmIds = new ArrayList<>();
+        if (subRanking == null) {
+            return filmIds;
+        }
+        for (FilmScore filmScore : subRanking) {
+            if (filmIds.size() == count) {
+                break;
+            }
+            if (filter.test(filmScore)) {
+                filmIds.add(filmScore.filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    private void insert(FilmScore filmScore) {
+        scores.put(filmScore.filmId, filmScore);
+        ranking.add(filmScore);
+        rankingByYear.computeIfAbsent(filmScore.year, k -> new TreeSet<>(BY_POPULARITY)).add(filmScore);
+        for (int genreId : filmScore.genreIds) {
+            rankingByGenre.computeIfAbsent(genreId, k -> new TreeSet<>(BY_POPULARITY)).add(filmScore);
+        }
+    }
+
+    private FilmScore remove(int filmId) {
+        FilmScore filmScore = scores.remove(filmId);
+        if (filmScore == null) {
+            return null;
+        }
+        ranking.remove(filmScore);
+        removeFromSubRanking(rankingByYear, filmScore.year, filmScore);
+        for (int genreId : filmScore.genreIds) {
+            removeFromSubRanking(rankingByGenre, genreId, filmScore);
+        }
+        return filmScore;
+    }
+
+    private void removeFromSubRanking(Map<Integer, NavigableSet<FilmScore>> subRankings, int key,
+                                      FilmScore filmScore) {
+        NavigableSet<FilmScore> subRanking = subRankings.get(key);
+        if (subRanking != null) {
+            subRanking.remove(filmScore);
+            if (subRanking.isEmpty()) {
+                subRankings.remove(key);
+            }
+        }
+    }
+
+    private static final class FilmScore {
+        private final int filmId;
+        private final long score;
+        private final int year;
+        private final int[] genreIds;
+
+        private FilmScore(int filmId, long score, int year, int[] genreIds) {
+            this.filmId = filmId;
+            this.score = score;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+
+        private boolean hasGenre(int genreId) {
+            for (int id : genreIds) {
+                if (id == genreId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
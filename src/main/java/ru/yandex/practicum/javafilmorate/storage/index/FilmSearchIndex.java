@@ -0,0 +1,353 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.javafilmorate.model.Director;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Suggestion;
+import ru.yandex.practicum.javafilmorate.model.SuggestionType;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/* Инвертированный индекс триграмм по названиям фильмов и именам режиссёров для поиска подстроки
+ * и упорядоченные слова для подсказок по префиксу */
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    /* Больше популярность, при равенстве раньше по имени — лучше */
+    private static final Comparator<ScoredSuggestion> WORST_FIRST = Comparator
+            .comparingLong((ScoredSuggestion scored) -> scored.score)
+            .thenComparing(scored -> scored.suggestion.getName(), Comparator.reverseOrder());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramIndex titles = new TrigramIndex();
+    private final TrigramIndex directorNames = new TrigramIndex();
+    private final Map<Integer, Set<Integer>> filmsByDirector = new HashMap<>();
+    private final Map<Integer, Set<Integer>> directorsByFilm = new HashMap<>();
+
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void reload() {
+        log.info("ИНДЕКС: Загрузка поискового индекса фильмов");
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            directorNames.clear();
+            filmsByDirector.clear();
+            directorsByFilm.clear();
+            jdbcTemplate.query("SELECT FILM_ID, FILM_NAME FROM FILMS", rs -> {
+                titles.put(rs.getInt("FILM_ID"), rs.getString("FILM_NAME"));
+            });
+            jdbcTemplate.query("SELECT DIRECTOR_ID, DIRECTOR_NAME FROM DIRECTORS", rs -> {
+                directorNames.put(rs.getInt("DIRECTOR_ID"), rs.getString("DIRECTOR_NAME"));
+            });
+            jdbcTemplate.query("SELECT FILM_ID, DIRECTOR_ID FROM FILMS_DIRECTORS", rs -> {
+                link(rs.getInt("FILM_ID"), rs.getInt("DIRECTOR_ID"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putFilm(Film film) {
+        lock.writeLock().lock();
+        try {
+            unlinkFilm(film.getId());
+            titles.put(film.getId(), film.getName());
+            for (Director director : film.getDirectors()) {
+                link(film.getId(), director.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            unlinkFilm(filmId);
+            titles.remove(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Director director) {
+        lock.writeLock().lock();
+        try {
+            directorNames.put(director.getId(), director.getName());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(int directorId) {
+        lock.writeLock().lock();
+        try {
+            directorNames.remove(directorId);
+            Set<Integer> filmIds = filmsByDirector.remove(directorId);
+            if (filmIds == null) {
+                return;
+            }
+            for (int filmId : filmIds) {
+                Set<Integer> directorIds = directorsByFilm.get(filmId);
+                if (directorIds != null) {
+                    directorIds.remove(directorId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Set<Integer> search(String query, boolean byTitle, boolean byDirector) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            Set<Integer> filmIds = new HashSet<>();
+            if (byTitle) {
+                filmIds.addAll(titles.search(needle));
+            }
+            if (byDirector) {
+                for (int directorId : directorNames.search(needle)) {
+                    filmIds.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+                }
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Отбор лучших подсказок кучей размера count: худшая из отобранных в вершине, кандидат хуже неё
+     * отбрасывается без создания подсказки, поэтому короткий префикс не требует сортировки всех совпадений */
+    public List<Suggestion> suggest(String prefix, int count, ToLongFunction<Integer> filmScore) {
+        String needle = prefix.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty() || count <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            PriorityQueue<ScoredSuggestion> top = new PriorityQueue<>(count + 1, WORST_FIRST);
+            for (int filmId : titles.searchPrefix(needle)) {
+                offer(top, count, SuggestionType.FILM, filmId, titles.original(filmId),
+                        filmScore.applyAsLong(filmId));
+            }
+            for (int directorId : directorNames.searchPrefix(needle)) {
+                /* Популярность режиссёра - суммарная популярность его фильмов */
+                long score = 0;
+                for (int filmId : filmsByDirector.getOrDefault(directorId, Set.of())) {
+                    score += filmScore.applyAsLong(filmId);
+                }
+                offer(top, count, SuggestionType.DIRECTOR, directorId, directorNames.original(directorId), score);
+            }
+            List<ScoredSuggestion> best = new ArrayList<>(top);
+            best.sort(WORST_FIRST.reversed());
+            return best.stream().map(scored -> scored.suggestion).collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<ScoredSuggestion> top, int count, SuggestionType type, int id,
+                              String name, long score) {
+        if (top.size() == count) {
+            ScoredSuggestion worst = top.peek();
+            if (score < worst.score || (score == worst.score && name.compareTo(worst.suggestion.getName()) >= 0)) {
+                return;
+            }
+            top.poll();
+        }
+        top.add(new ScoredSuggestion(new Suggestion(type, id, name), score));
+    }
+
+    private void link(int filmId, int directorId) {
+        filmsByDirector.computeIfAbsent(directorId, k -> new HashSet<>()).add(filmId);
+        directorsByFilm.computeIfAbsent(filmId, k -> new HashSet<>()).add(directorId);
+    }
+
+    private void unlinkFilm(int filmId) {
+        Set<Integer> directorIds = directorsByFilm.remove(filmId);
+        if (directorIds == null) {
+            return;
+        }
+        for (int directorId : directorIds) {
+            Set<Integer> filmIds = filmsByDirector.get(directorId);
+            if (filmIds != null) {
+                filmIds.remove(filmId);
+                if (filmIds.isEmpty()) {
+                    filmsByDirector.remove(directorId);
+                }
+            }
+        }
+    }
+
+    private static final class ScoredSuggestion {
+        private final Suggestion suggestion;
+        private final long score;
+
+        private ScoredSuggestion(Suggestion suggestion, long score) {
+            this.suggestion = suggestion;
+            this.score = score;
+        }
+    }
+
+    private static final class TrigramIndex {
+        private static final int GRAM_LENGTH = 3;
+        private final Map<Integer, String> originals = new HashMap<>();
+        private final Map<Integer, String> texts = new HashMap<>();
+        private final Map<Long, Set<Integer>> postings = new HashMap<>();
+        /* Слова строки для подсказок по префиксу: префикс из нескольких слов ищется по первому слову
+         * и сверяется с полной строкой, поэтому память линейна по длине строки */
+        private final NavigableMap<String, Set<Integer>> words = new TreeMap<>();
+
+        private void put(int id, String text) {
+            remove(id);
+            String normalized = text.toLowerCase(Locale.ROOT);
+            originals.put(id, text);
+            texts.put(id, normalized);
+            for (long gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+            for (String word : splitWords(normalized)) {
+                words.computeIfAbsent(word, k -> new HashSet<>()).add(id);
+            }
+        }
+
+        private void remove(int id) {
+            originals.remove(id);
+            String old = texts.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (long gram : grams(old)) {
+                removeId(postings, gram, id);
+            }
+            for (String word : splitWords(old)) {
+                removeId(words, word, id);
+            }
+        }
+
+        private void clear() {
+            originals.clear();
+            texts.clear();
+            postings.clear();
+            words.clear();
+        }
+
+        private String original(int id) {
+            return originals.get(id);
+        }
+
+        private Set<Integer> searchPrefix(String prefix) {
+            Set<Integer> found = new HashSet<>();
+            int firstWordEnd = wordEnd(prefix, 0);
+            if (firstWordEnd == 0) {
+                return found;
+            }
+            if (firstWordEnd == prefix.length()) {
+                words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values().forEach(found::addAll);
+                return found;
+            }
+            /* Первое слово многословного префикса должно совпасть со словом строки целиком */
+            for (int id : words.getOrDefault(prefix.substring(0, firstWordEnd), Set.of())) {
+                if (startsWithAtWord(texts.get(id), prefix)) {
+                    found.add(id);
+                }
+            }
+            return found;
+        }
+
+        /* Кандидаты - пересечение списков триграмм запроса, затем проверка вхождения подстроки */
+        private List<Integer> search(String needle) {
+            List<Integer> found = new ArrayList<>();
+            if (needle.length() < GRAM_LENGTH) {
+                texts.forEach((id, text) -> {
+                    if (text.contains(needle)) {
+                        found.add(id);
+                    }
+                });
+                return found;
+            }
+            List<Set<Integer>> lists = new ArrayList<>();
+            for (long gram : grams(needle)) {
+                Set<Integer> ids = postings.get(gram);
+                if (ids == null) {
+                    return found;
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            for (int id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                if (inAll && texts.get(id).contains(needle)) {
+                    found.add(id);
+                }
+            }
+            return found;
+        }
+
+        private static Set<String> splitWords(String text) {
+            Set<String> found = new HashSet<>();
+            for (int i = 0; i < text.length(); i++) {
+                if (isWordStart(text, i)) {
+                    int end = wordEnd(text, i);
+                    found.add(text.substring(i, end));
+                    i = end;
+                }
+            }
+            return found;
+        }
+
+        private static boolean startsWithAtWord(String text, String prefix) {
+            for (int i = text.indexOf(prefix); i >= 0; i = text.indexOf(prefix, i + 1)) {
+                if (isWordStart(text, i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isWordStart(String text, int i) {
+            return Character.isLetterOrDigit(text.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+        }
+
+        private static int wordEnd(String text, int from) {
+            int end = from;
+            while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+                end++;
+            }
+            return end;
+        }
+
+        private static <K> void removeId(Map<K, Set<Integer>> index, K key, int id) {
+            Set<Integer> ids = index.get(key);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+
+        private static Set<Long> grams(String text) {
+            Set<Long> grams = new HashSet<>();
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+            }
+            return grams;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/* Граф дружбы в памяти: для каждого пользователя упорядоченные массивы id друзей и подписчиков.
+ * Массивы не изменяются после публикации, изменение заменяет массив копией, поэтому чтение идёт без блокировок */
+@Slf4j
+@Component
+public class FriendGraph {
+    /* Ограничения обхода для пользователей с тысячами друзей и для популярных друзей с тысячами подписчиков */
+    private static final int SUGGESTION_FRIENDS_SAMPLE = 512;
+    private static final int SUGGESTION_FOLLOWERS_SAMPLE = 256;
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private volatile Map<Integer, int[]> followers = new ConcurrentHashMap<>();
+
+    public FriendGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void reload() {
+        log.info("ИНДЕКС: Загрузка графа дружбы");
+        int[][] edges = {new int[1024], new int[1024]};
+        int[] size = {0};
+        /* Порядок по уникальному индексу (USER_ID, FRIEND_ID) даёт упорядоченные списки друзей */
+        jdbcTemplate.query("SELECT USER_ID, FRIEND_ID FROM FRIENDS ORDER BY USER_ID, FRIEND_ID", rs -> {
+            if (size[0] == edges[0].length) {
+                edges[0] = Arrays.copyOf(edges[0], size[0] * 2);
+                edges[1] = Arrays.copyOf(edges[1], size[0] * 2);
+            }
+            edges[0][size[0]] = rs.getInt("USER_ID");
+            edges[1][size[0]++] = rs.getInt("FRIEND_ID");
+        });
+        friends = build(edges[0], edges[1], size[0]);
+        followers = build(edges[1], edges[0], size[0]);
+        log.info("ИНДЕКС: Граф дружбы загружен, {} пользователей с друзьями и {} связей", friends.size(), size[0]);
+    }
+
+    /* Возвращаемый массив нельзя изменять */
+    public int[] friendIds(int userId) {
+        return friends.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    public int[] followerIds(int userId) {
+        return followers.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    /* Общие друзья — пересечение двух упорядоченных массивов слиянием */
+    public int[] commonFriendIds(int userId, int otherId) {
+        return SortedIntArrays.intersect(friendIds(userId), friendIds(otherId));
+    }
+
+    /* Возможные знакомые — не друзья пользователя, у которых больше всего общих с ним друзей. Кандидаты
+     * собираются обходом на два шага: друзья пользователя и те, кто тоже добавил их в друзья. При выборке
+     * из длинных списков отобранные кандидаты переупорядочиваются по точному числу общих друзей */
+    public int[] suggestFriends(int userId, int limit) {
+        int[] friendIds = friendIds(userId);
+        int[] sampledFriends = sample(friendIds, SUGGESTION_FRIENDS_SAMPLE);
+        boolean sampled = sampledFriends.length < friendIds.length;
+        IntCounter mutualCounts = new IntCounter(sampledFriends.length * 16);
+        for (int friendId : sampledFriends) {
+            int[] followerIds = followerIds(friendId);
+            int[] sampledFollowers = sample(followerIds, SUGGESTION_FOLLOWERS_SAMPLE);
+            sampled |= sampledFollowers.length < followerIds.length;
+            for (int candidateId : sampledFollowers) {
+                if (candidateId != userId && Arrays.binarySearch(friendIds, candidateId) < 0) {
+                    mutualCounts.increment(candidateId);
+                }
+            }
+        }
+        if (!sampled) {
+            return mutualCounts.topKeys(limit);
+        }
+        int[] shortlist = mutualCounts.topKeys(Math.max(limit * 4, 32));
+        IntCounter exactCounts = new IntCounter(shortlist.length);
+        for (int candidateId : shortlist) {
+            exactCounts.add(candidateId, SortedIntArrays.intersectionSize(friendIds, friendIds(candidateId)));
+        }
+        return exactCounts.topKeys(limit);
+    }
+
+    public Set<Integer> usersWithFollowersOver(int followersCount) {
+        Set<Integer> users = new HashSet<>();
+        followers.forEach((userId, ids) -> {
+            if (ids.length > followersCount) {
+                users.add(userId);
+            }
+        });
+        return users;
+    }
+
+    public void addEdge(int userId, int friendId) {
+        friends.compute(userId, (id, ids) -> SortedIntArrays.insert(ids, friendId));
+        followers.compute(friendId, (id, ids) -> SortedIntArrays.insert(ids, userId));
+    }
+
+    public void removeEdge(int userId, int friendId) {
+        friends.computeIfPresent(userId, (id, ids) -> SortedIntArrays.delete(ids, friendId));
+        followers.computeIfPresent(friendId, (id, ids) -> SortedIntArrays.delete(ids, userId));
+    }
+
+    public void removeUser(int userId) {
+        for (int friendId : friendIds(userId)) {
+            followers.computeIfPresent(friendId, (id, ids) -> SortedIntArrays.delete(ids, userId));
+        }
+        for (int followerId : followerIds(userId)) {
+            friends.computeIfPresent(followerId, (id, ids) -> SortedIntArrays.delete(ids, userId));
+        }
+        friends.remove(userId);
+        followers.remove(userId);
+    }
+
+    /* Рёбра упорядочены по (USER_ID, FRIEND_ID), поэтому и списки друзей, и списки подписчиков
+     * заполняются сразу упорядоченными */
+    private static Map<Integer, int[]> build(int[] from, int[] to, int size) {
+        Map<Integer, int[]> counts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            counts.computeIfAbsent(from[i], id -> new int[1])[0]++;
+        }
+        Map<Integer, int[]> adjacency = new ConcurrentHashMap<>(counts.size() * 4 / 3 + 1);
+        counts.forEach((id, count) -> {
+            adjacency.put(id, new int[count[0]]);
+            count[0] = 0;
+        });
+        for (int i = 0; i < size; i++) {
+            adjacency.get(from[i])[counts.get(from[i])[0]++] = to[i];
+        }
+        return adjacency;
+    }
+
+    /* Систематическая выборка со случайным началом: каждый элемент попадает в неё с равной вероятностью */
+    private static int[] sample(int[] ids, int size) {
+        if (ids.length <= size) {
+            return ids;
+        }
+        double step = (double) ids.length / size;
+        double position = ThreadLocalRandom.current().nextDouble(step);
+        int[] sampled = new int[size];
+        for (int i = 0; i < size; i++, position += step) {
+            sampled[i] = ids[(int) position];
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import java.util.Arrays;
+
+/* Счётчик по ключам int на открытой адресации с линейным пробированием, без упаковки ключей в Integer */
+public final class IntCounter {
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    public IntCounter(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(expectedKeys, 8) * 2 - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, FREE);
+    }
+
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    public void add(int key, int delta) {
+        int slot = slot(key);
+        if (keys[slot] == FREE) {
+            keys[slot] = key;
+            counts[slot] = delta;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return;
+        }
+        counts[slot] += delta;
+    }
+
+    /* Ключи с наибольшими счётчиками, при равенстве по возрастанию ключа. Отбор через кучу размера limit */
+    public int[] topKeys(int limit) {
+        long[] heap = new long[Math.min(limit, size)];
+        int heapSize = 0;
+        for (int slot = 0; slot < keys.length && heap.length > 0; slot++) {
+            if (keys[slot] == FREE) {
+                continue;
+            }
+            long entry = pack(keys[slot], counts[slot]);
+            if (heapSize < heap.length) {
+                heap[heapSize] = entry;
+                siftUp(heap, heapSize++);
+            } else if (entry > heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, heapSize);
+            }
+        }
+        Arrays.sort(heap, 0, heapSize);
+        int[] top = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            top[i] = ~(int) heap[heapSize - 1 - i];
+        }
+        return top;
+    }
+
+    private int slot(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, FREE);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    /* Старшие 32 бита — счётчик, младшие — инвертированный ключ: больший long означает больший счётчик,
+     * а при равных счётчиках меньший ключ */
+    private static long pack(int key, int count) {
+        return (long) count << 32 | (~key & 0xFFFFFFFFL);
+    }
+
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = index * 2 + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, smallest, index);
+            index = smallest;
+        }
+    }
+
+    private static void swap(long[] heap, int first, int second) {
+        long value = heap[first];
+        heap[first] = heap[second];
+        heap[second] = value;
+    }
+}
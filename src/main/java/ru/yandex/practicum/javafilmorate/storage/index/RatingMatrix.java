@@ -0,0 +1,105 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import java.util.Arrays;
+
+/* Разреженная матрица оценок пользователь x фильм в формате CSR: строки упорядочены по id пользователя,
+ * фильмы внутри строки упорядочены по id фильма */
+public final class RatingMatrix {
+    private final int[] userIds;
+    private final int[] rowOffsets;
+    private final int[] filmIds;
+    private final byte[] ratings;
+
+    private RatingMatrix(int[] userIds, int[] rowOffsets, int[] filmIds, byte[] ratings) {
+        this.userIds = userIds;
+        this.rowOffsets = rowOffsets;
+        this.filmIds = filmIds;
+        this.ratings = ratings;
+    }
+
+    public int rowCount() {
+        return userIds.length;
+    }
+
+    public int rowOf(int userId) {
+        return Arrays.binarySearch(userIds, userId);
+    }
+
+    public int userId(int row) {
+        return userIds[row];
+    }
+
+    public int rowStart(int row) {
+        return rowOffsets[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowOffsets[row + 1];
+    }
+
+    public int filmId(int position) {
+        return filmIds[position];
+    }
+
+    public int rating(int position) {
+        return ratings[position];
+    }
+
+    public int[] userIds() {
+        return userIds.clone();
+    }
+
+    public int[] filmIds(int row) {
+        return Arrays.copyOfRange(filmIds, rowOffsets[row], rowOffsets[row + 1]);
+    }
+
+    public boolean contains(int row, int filmId) {
+        return Arrays.binarySearch(filmIds, rowOffsets[row], rowOffsets[row + 1], filmId) >= 0;
+    }
+
+    public static Builder builder(int expectedMarks) {
+        return new Builder(expectedMarks);
+    }
+
+    /* Оценки должны добавляться в порядке (id пользователя, id фильма) */
+    public static final class Builder {
+        private int[] userIds = new int[16];
+        private int[] rowOffsets = new int[17];
+        private int[] filmIds;
+        private byte[] ratings;
+        private int rows;
+        private int size;
+
+        private Builder(int expectedMarks) {
+            filmIds = new int[Math.max(expectedMarks, 16)];
+            ratings = new byte[filmIds.length];
+        }
+
+        public Builder add(int userId, int filmId, int rating) {
+            if (rows == 0 || userIds[rows - 1] != userId) {
+                if (rows > 0 && userIds[rows - 1] > userId) {
+                    throw new IllegalStateException("Оценки должны быть упорядочены по id пользователя");
+                }
+                if (rows == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, rows * 2);
+                    rowOffsets = Arrays.copyOf(rowOffsets, rows * 2 + 1);
+                }
+                userIds[rows] = userId;
+                rowOffsets[rows++] = size;
+            }
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+                ratings = Arrays.copyOf(ratings, size * 2);
+            }
+            filmIds[size] = filmId;
+            ratings[size++] = (byte) rating;
+            return this;
+        }
+
+        public RatingMatrix build() {
+            rowOffsets[rows] = size;
+            return new RatingMatrix(Arrays.copyOf(userIds, rows), Arrays.copyOf(rowOffsets, rows + 1),
+                    Arrays.copyOf(filmIds, size), Arrays.copyOf(ratings, size));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.javafilmorate.model.Director;
+import ru.yandex.practicum.javafilmorate.model.Genre;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.RowMappers;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/* Кэш справочников: рейтинги MPA и жанры хранятся в массивах по id, режиссёры - в конкурентной карте */
+@Slf4j
+@Component
+public class ReferenceDataCache {
+    /* Промах по MPA или жанру перечитывает таблицу не чаще раза в секунду: импорт с неизвестными id
+     * иначе перечитывал бы справочник на каждую запись. Изменения в обход приложения применяет reload() */
+    private static final long MISS_RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong mpaReloadedAt = new AtomicLong(System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS);
+    private final AtomicLong genresReloadedAt = new AtomicLong(System.nanoTime() - MISS_RELOAD_INTERVAL_NANOS);
+    private volatile Mpa[] mpaById = new Mpa[0];
+    private volatile Genre[] genreById = new Genre[0];
+    private final Map<Integer, Director> directors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> hits = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> misses = new ConcurrentHashMap<>();
+
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void reload() {
+        log.info("ИНДЕКС: Загрузка справочников MPA, жанров и режиссёров");
+        reloadMpa();
+        reloadGenres();
+        reloadDirectors();
+    }
+
+    public Optional<Mpa> getMpa(int mpaId) {
+        Mpa mpa = lookup(mpaById, mpaId);
+        record("mpa", mpa != null);
+        if (mpa == null && isReloadDue(mpaReloadedAt)) {
+            reloadMpa();
+            mpa = lookup(mpaById, mpaId);
+        }
+        return Optional.ofNullable(mpa).map(found -> new Mpa(found.getId(), found.getName()));
+    }
+
+    public List<Mpa> getAllMpa() {
+        record("mpa", true);
+        return Arrays.stream(mpaById)
+                .filter(Objects::nonNull)
+                .map(mpa -> new Mpa(mpa.getId(), mpa.getName()))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Genre> getGenre(int genreId) {
+        Genre genre = lookup(genreById, genreId);
+        record("genre", genre != null);
+        if (genre == null && isReloadDue(genresReloadedAt)) {
+            reloadGenres();
+            genre = lookup(genreById, genreId);
+        }
+        return Optional.ofNullable(genre).map(found -> new Genre(found.getId(), found.getName()));
+    }
+
+    public List<Genre> getAllGenres() {
+        record("genre", true);
+        return Arrays.stream(genreById)
+                .filter(Objects::nonNull)
+                .map(genre -> new Genre(genre.getId(), genre.getName()))
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Director> getDirector(int directorId) {
+        Director director = directors.get(directorId);
+        record("director", director != null);
+        if (director == null) {
+            List<Director> loaded = jdbcTemplate.query("SELECT * FROM DIRECTORS WHERE DIRECTOR_ID = ?",
+                    RowMappers.DIRECTOR, directorId);
+            if (loaded.isEmpty()) {
+                return Optional.empty();
+            }
+            director = loaded.get(0);
+            directors.put(directorId, director);
+        }
+        return Optional.of(new Director(director.getId(), director.getName()));
+    }
+
+    public List<Director> getAllDirectors() {
+        record("director", true);
+        return directors.values().stream()
+                .sorted(Comparator.comparing(Director::getId))
+                .map(director -> new Director(director.getId(), director.getName()))
+                .collect(Collectors.toList());
+    }
+
+    public void putDirector(Director director) {
+        directors.put(director.getId(), new Director(director.getId(), director.getName()));
+    }
+
+    public void removeDirector(int directorId) {
+        directors.remove(directorId);
+    }
+
+    public Map<String, Map<String, Long>> getStatistics() {
+        Map<String, Map<String, Long>> statistics = new TreeMap<>();
+        for (String name : List.of("mpa", "genre", "director")) {
+            statistics.put(name, Map.of(
+                    "hits", hits.getOrDefault(name, new LongAdder()).sum(),
+                    "misses", misses.getOrDefault(name, new LongAdder()).sum()));
+        }
+        return statistics;
+    }
+
+    private void reloadMpa() {
+        mpaReloadedAt.set(System.nanoTime());
+        List<Mpa> loaded = jdbcTemplate.query("SELECT * FROM MPA", RowMappers.MPA);
+        Mpa[] snapshot = new Mpa[loaded.stream().mapToInt(Mpa::getId).max().orElse(-1) + 1];
+        loaded.forEach(mpa -> snapshot[mpa.getId()] = mpa);
+        mpaById = snapshot;
+    }
+
+    private void reloadGenres() {
+        genresReloadedAt.set(System.nanoTime());
+        List<Genre> loaded = jdbcTemplate.query("SELECT * FROM GENRES", RowMappers.GENRE);
+        Genre[] snapshot = new Genre[loaded.stream().mapToInt(Genre::getId).max().orElse(-1) + 1];
+        loaded.forEach(genre -> snapshot[genre.getId()] = genre);
+        genreById = snapshot;
+    }
+
+    private void reloadDirectors() {
+        Map<Integer, Director> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT * FROM DIRECTORS", (RowCallbackHandler) rs -> {
+            Director director = RowMappers.DIRECTOR.mapRow(rs, 0);
+            loaded.put(director.getId(), director);
+        });
+        directors.keySet().retainAll(loaded.keySet());
+        directors.putAll(loaded);
+    }
+
+    private static boolean isReloadDue(AtomicLong reloadedAt) {
+        long last = reloadedAt.get();
+        long now = System.nanoTime();
+        return now - last >= MISS_RELOAD_INTERVAL_NANOS && reloadedAt.compareAndSet(last, now);
+    }
+
+    private static <T> T lookup(T[] byId, int id) {
+        return id >= 0 && id < byId.length ? byId[id] : null;
+    }
+
+    private void record(String name, boolean hit) {
+        (hit ? hits : misses).computeIfAbsent(name, k -> new LongAdder()).increment();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.javafilmorate.storage.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Оценённые фильмы каждого пользователя — упорядоченные массивы id, которые заменяются копией при изменении.
+ * Общие фильмы двух пользователей находятся слиянием массивов без обращения к таблице MARKS */
+@Slf4j
+@Component
+public class UserMarksIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Map<Integer, int[]> filmsByUser = new ConcurrentHashMap<>();
+
+    public UserMarksIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void reload() {
+        log.info("ИНДЕКС: Загрузка оценённых пользователями фильмов");
+        Map<Integer, int[]> loaded = new ConcurrentHashMap<>();
+        int[][] films = {new int[64]};
+        int[] state = {0, 0};
+        /* Порядок индекса MARKS_USER_IDX: фильмы пользователя приходят подряд и уже упорядоченными */
+        jdbcTemplate.query("SELECT USER_ID, FILM_ID FROM MARKS ORDER BY USER_ID, FILM_ID", rs -> {
+            int userId = rs.getInt("USER_ID");
+            if (state[1] > 0 && userId != state[0]) {
+                loaded.put(state[0], Arrays.copyOf(films[0], state[1]));
+                state[1] = 0;
+            }
+            state[0] = userId;
+            if (state[1] == films[0].length) {
+                films[0] = Arrays.copyOf(films[0], state[1] * 2);
+            }
+            films[0][state[1]++] = rs.getInt("FILM_ID");
+        });
+        if (state[1] > 0) {
+            loaded.put(state[0], Arrays.copyOf(films[0], state[1]));
+        }
+        filmsByUser = loaded;
+        log.info("ИНДЕКС: Загружены оценки {} пользователей", loaded.size());
+    }
+
+    /* Возвращаемый массив нельзя изменять */
+    public int[] filmIds(int userId) {
+        return filmsByUser.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    public int[] commonFilmIds(int userId, int otherId) {
+        return SortedIntArrays.intersect(filmIds(userId), filmIds(otherId));
+    }
+
+    public void addMark(int userId, int filmId) {
+        filmsByUser.compute(userId, (id, ids) -> SortedIntArrays.insert(ids, filmId));
+    }
+
+    public void removeMark(int userId, int filmId) {
+        filmsByUser.computeIfPresent(userId, (id, ids) -> SortedIntArrays.delete(ids, filmId));
+    }
+
+    public void removeUser(int userId) {
+        filmsByUser.remove(userId);
+    }
+
+    /* Обратного списка оценивших нет: удаление фильма редкое, поэтому проверяются все пользователи */
+    public void removeFilm(int filmId) {
+        for (Integer userId : filmsByUser.keySet()) {
+            filmsByUser.computeIfPresent(userId, (id, ids) -> SortedIntArrays.delete(ids, filmId));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.javafilmorate.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+public final class NdjsonUtil {
+
+    /* Одна строка NDJSON: объект в JSON и перевод строки */
+    public static void writeLine(ObjectMapper objectMapper, OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+CREATE TABLE IF NOT EXISTS USERS
+(
+    USER_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    USER_EMAIL CHARACTER VARYING(255) NOT NULL,
+    USER_LOGIN CHARACTER VARYING(255) NOT NULL,
+    USER_NAME CHARACTER VARYING(255),
+    USER_BIRTHDAY DATE
+);
+CREATE TABLE IF NOT EXISTS MPA
+(
+    MPA_ID   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    MPA_NAME VARCHAR(25) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS FILMS
+(
+    FILM_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    FILM_NAME CHARACTER VARYING(255) NOT NULL,
+    FILM_DESCRIPTION CHARACTER VARYING(255) NOT NULL,
+    FILM_RELEASE_DATE DATE NOT NULL,
+    FILM_DURATION INTEGER NOT NULL,
+    MPA_ID INTEGER NOT NULL NOT NULL REFERENCES MPA (MPA_ID),
+    MARK_COUNT INTEGER DEFAULT 0 NOT NULL,
+    RATING_SUM BIGINT DEFAULT 0 NOT NULL
+);
+CREATE INDEX IF NOT EXISTS FILMS_MARK_COUNT_IDX ON FILMS (MARK_COUNT DESC, FILM_ID);
+CREATE INDEX IF NOT EXISTS FILMS_RATING_SUM_IDX ON FILMS (RATING_SUM DESC, FILM_ID);
+CREATE TABLE IF NOT EXISTS GENRES
+(
+    GENRE_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    GENRE_NAME CHARACTER VARYING(100) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS FRIENDS
+(
+    ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+    USER_ID INTEGER NOT NULL REFERENCES USERS(USER_ID) ON DELETE CASCADE,
+    FRIEND_ID INTEGER NOT NULL  REFERENCES USERS(USER_ID) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS FRIENDS_FRIEND_IDX ON FRIENDS (FRIEND_ID, USER_ID);
+CREATE TABLE IF NOT EXISTS FILM_GENRES
+(
+    FILM_ID INTEGER NOT NULL REFERENCES FILMS (FILM_ID) ON DELETE CASCADE,
+    GENRE_ID INTEGER NOT NULL REFERENCES GENRES (GENRE_ID),
+    PRIMARY KEY (FILM_ID, GENRE_ID)
+);
+CREATE TABLE IF NOT EXISTS MARKS
+(
+    FILM_ID INTEGER NOT NULL REFERENCES FILMS(FILM_ID) ON DELETE CASCADE,
+    USER_ID INTEGER NOT NULL REFERENCES USERS(USER_ID) ON DELETE CASCADE,
+    RATING INTEGER NOT NULL,
+    PRIMARY KEY (FILM_ID, USER_ID)
+);
+CREATE INDEX IF NOT EXISTS MARKS_USER_IDX ON MARKS (USER_ID, FILM_ID, RATING);
+CREATE TABLE IF NOT EXISTS REVIEWS
+(
+  ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  CONTENT VARCHAR(500) NOT NULL,
+  IS_POSITIVE BOOLEAN,
+  FILM_ID INTEGER NOT NULL REFERENCES FILMS(FILM_ID) ON UPDATE CASCADE ON DELETE CASCADE,
+  USER_ID INTEGER NOT NULL REFERENCES USERS(USER_ID) ON UPDATE CASCADE ON DELETE CASCADE,
+  USEFUL INTEGER
+);
+CREATE TABLE IF NOT EXISTS EVENTS
+(
+  EVENT_ID INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  EVENT_TYPE VARCHAR(30) NOT NULL,
+  OPERATION_TYPE VARCHAR(30) NOT NULL,
+  ENTITY_ID INTEGER NOT NULL,
+  USER_ID INTEGER NOT NULL REFERENCES USERS(USER_ID) ON DELETE CASCADE,
+  EVENT_TIME BIGINT NOT NULL
+);
+CREATE INDEX IF NOT EXISTS EVENTS_USER_EVENT_IDX ON EVENTS (USER_ID, EVENT_ID);
+CREATE TABLE IF NOT EXISTS DIRECTORS
+(
+    DIRECTOR_ID INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+    DIRECTOR_NAME CHARACTER VARYING(100) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS FILMS_DIRECTORS
+(
+    ID INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+    FILM_ID INTEGER NOT NULL REFERENCES FILMS(FILM_ID) ON DELETE CASCADE,
+    DIRECTOR_ID INTEGER NOT NULL REFERENCES DIRECTORS(DIRECTOR_ID) ON DELETE CASCADE
+);
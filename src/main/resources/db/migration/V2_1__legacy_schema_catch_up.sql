@@ -0,0 +1,17 @@
+-- База, созданная прежним schema.sql, принимается за версию 2: таблицы и справочники в ней уже есть,
+-- но нет агрегатов оценок и индексов из V1. На базе, созданной миграциями, скрипт ничего не меняет
+ALTER TABLE FILMS ADD COLUMN IF NOT EXISTS MARK_COUNT INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE FILMS ADD COLUMN IF NOT EXISTS RATING_SUM BIGINT DEFAULT 0 NOT NULL;
+UPDATE FILMS AS F SET
+    MARK_COUNT = (SELECT COUNT(*) FROM MARKS AS M WHERE M.FILM_ID = F.FILM_ID),
+    RATING_SUM = (SELECT COALESCE(SUM(M.RATING), 0) FROM MARKS AS M WHERE M.FILM_ID = F.FILM_ID);
+
+CREATE INDEX IF NOT EXISTS FILMS_MARK_COUNT_IDX ON FILMS (MARK_COUNT DESC, FILM_ID);
+CREATE INDEX IF NOT EXISTS FILMS_RATING_SUM_IDX ON FILMS (RATING_SUM DESC, FILM_ID);
+CREATE INDEX IF NOT EXISTS FRIENDS_FRIEND_IDX ON FRIENDS (FRIEND_ID, USER_ID);
+CREATE INDEX IF NOT EXISTS MARKS_USER_IDX ON MARKS (USER_ID, FILM_ID, RATING);
+CREATE INDEX IF NOT EXISTS EVENTS_USER_EVENT_IDX ON EVENTS (USER_ID, EVENT_ID);
+
+-- Повторные заявки в друзья прежней схемы удаляются до уникального ограничения в V3
+DELETE FROM FRIENDS AS F
+WHERE EXISTS (SELECT 1 FROM FRIENDS AS D WHERE D.USER_ID = F.USER_ID AND D.FRIEND_ID = F.FRIEND_ID AND D.ID < F.ID);
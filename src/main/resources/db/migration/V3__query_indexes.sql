@@ -0,0 +1,18 @@
+CREATE INDEX FILMS_RELEASE_DATE_IDX ON FILMS (FILM_RELEASE_DATE, RATING_SUM DESC, FILM_ID);
+CREATE INDEX FILM_GENRES_GENRE_IDX ON FILM_GENRES (GENRE_ID, FILM_ID);
+
+DELETE FROM FRIENDS AS F
+WHERE EXISTS (SELECT 1 FROM FRIENDS AS D WHERE D.USER_ID = F.USER_ID AND D.FRIEND_ID = F.FRIEND_ID AND D.ID < F.ID);
+ALTER TABLE FRIENDS ADD CONSTRAINT FRIENDS_USER_FRIEND_UQ UNIQUE (USER_ID, FRIEND_ID);
+
+UPDATE REVIEWS SET USEFUL = 0 WHERE USEFUL IS NULL;
+ALTER TABLE REVIEWS ALTER COLUMN USEFUL SET DEFAULT 0;
+ALTER TABLE REVIEWS ALTER COLUMN USEFUL SET NOT NULL;
+CREATE INDEX REVIEWS_FILM_USEFUL_IDX ON REVIEWS (FILM_ID, USEFUL DESC, ID);
+CREATE INDEX REVIEWS_USER_IDX ON REVIEWS (USER_ID);
+
+DELETE FROM FILMS_DIRECTORS AS F
+WHERE EXISTS (SELECT 1 FROM FILMS_DIRECTORS AS D
+              WHERE D.FILM_ID = F.FILM_ID AND D.DIRECTOR_ID = F.DIRECTOR_ID AND D.ID < F.ID);
+CREATE UNIQUE INDEX FILMS_DIRECTORS_FILM_IDX ON FILMS_DIRECTORS (FILM_ID, DIRECTOR_ID);
+CREATE INDEX FILMS_DIRECTORS_DIRECTOR_IDX ON FILMS_DIRECTORS (DIRECTOR_ID, FILM_ID);
@@ -0,0 +1 @@
+CREATE INDEX REVIEWS_USEFUL_IDX ON REVIEWS (USEFUL DESC, ID);
@@ -0,0 +1,8 @@
+CREATE TABLE REVIEW_VOTES
+(
+    REVIEW_ID INTEGER NOT NULL REFERENCES REVIEWS(ID) ON DELETE CASCADE,
+    USER_ID INTEGER NOT NULL REFERENCES USERS(USER_ID) ON DELETE CASCADE,
+    VOTE SMALLINT NOT NULL CHECK (VOTE IN (-1, 1)),
+    PRIMARY KEY (REVIEW_ID, USER_ID)
+);
+CREATE INDEX REVIEW_VOTES_USER_IDX ON REVIEW_VOTES (USER_ID, REVIEW_ID);
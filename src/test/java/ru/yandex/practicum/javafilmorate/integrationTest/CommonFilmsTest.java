@@ -0,0 +1,195 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.FilmImportService;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.service.UserService;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.UserMarksIndex;
+import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class CommonFilmsTest {
+    private static final int USERS = 5_000;
+    private static final int FILMS = 2_000;
+    private static final int MARKS_PER_USER = 200;
+    private static final int SMALL_USERS = 300;
+    private static final int SMALL_FILMS = 200;
+    private static final int SMALL_MARKS_PER_USER = 40;
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int PAIRS = 200;
+    private static final String COMMON_FILMS_SQL = "SELECT F.FILM_ID FROM FILMS AS F " +
+            "JOIN MARKS AS M1 ON M1.FILM_ID = F.FILM_ID AND M1.USER_ID = ? " +
+            "JOIN MARKS AS M2 ON M2.FILM_ID = F.FILM_ID AND M2.USER_ID = ? " +
+            "ORDER BY F.RATING_SUM DESC, F.FILM_ID";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmImportService filmImportService;
+    private final FilmPopularityIndex popularityIndex;
+    private final UserMarksIndex userMarksIndex;
+
+    @Test
+    @DisplayName("Общие фильмы двух пользователей по популярности с учётом изменения и удаления оценок")
+    void testCommonFilmsFollowMarks() {
+        int[] films = new int[4];
+        for (int i = 0; i < films.length; i++) {
+            films[i] = filmService.addFilm(new Film(null, "Film" + i, "Description", LocalDate.of(2000, 1, 1),
+                    100, new Mpa(1, null))).getId();
+        }
+        int[] users = new int[3];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userService.addUser(new User(null, "user" + i + "@yandex.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1), null)).getId();
+        }
+        filmService.addMark(films[0], users[0], 5);
+        filmService.addMark(films[1], users[0], 9);
+        filmService.addMark(films[2], users[0], 7);
+        filmService.addMark(films[3], users[0], 2);
+        filmService.addMark(films[0], users[1], 8);
+        filmService.addMark(films[1], users[1], 3);
+        filmService.addMark(films[2], users[1], 3);
+        filmImportService.importMarks(new ByteArrayInputStream(("[" + mark(films[1], users[2], 10) + "," +
+                mark(films[2], users[2], 10) + "]").getBytes(StandardCharsets.UTF_8)));
+
+        /* Популярность: второй фильм 22, третий 20, первый 13 */
+        assertThat(ids(filmService.commonFilms(users[0], users[1]))).containsExactly(films[1], films[2], films[0]);
+        assertThat(ids(filmService.commonFilms(users[1], users[0]))).containsExactly(films[1], films[2], films[0]);
+        assertThat(ids(filmService.commonFilms(users[0], users[2]))).containsExactly(films[1], films[2]);
+
+        filmService.deleteMark(films[1], users[1]);
+        assertThat(ids(filmService.commonFilms(users[0], users[1]))).containsExactly(films[2], films[0]);
+        filmService.deleteFilm(films[2]);
+        assertThat(ids(filmService.commonFilms(users[0], users[1]))).containsExactly(films[0]);
+        userService.deleteUser(users[1]);
+        assertThat(userMarksIndex.filmIds(users[1])).isEmpty();
+
+        assertThrows(UnregisteredDataException.class, () -> filmService.commonFilms(users[0], users[1]));
+        assertThrows(UnregisteredDataException.class, () -> filmService.commonFilms(999, users[0]));
+    }
+
+    @Test
+    @DisplayName("Общие фильмы из индекса оценок совпадают с пересечением оценок в базе")
+    void testCommonFilmsMatchSql() {
+        Random random = new Random(5);
+        createMarks(random, SMALL_USERS, SMALL_FILMS, SMALL_MARKS_PER_USER);
+        popularityIndex.reload();
+        userMarksIndex.reload();
+        assertMatchesSql(pairs(random, SMALL_USERS));
+    }
+
+    @Tag("benchmark")
+    @Test
+    @DisplayName("Общие фильмы по индексам быстрее пересечения оценок в базе на миллионе оценок")
+    void testCommonFilmsFasterThanSql() {
+        Random random = new Random(5);
+        createMarks(random, USERS, FILMS, MARKS_PER_USER);
+        popularityIndex.reload();
+        long start = System.nanoTime();
+        userMarksIndex.reload();
+        long reloadMs = (System.nanoTime() - start) / 1_000_000;
+
+        int[][] pairs = pairs(random, USERS);
+        assertMatchesSql(pairs);
+        start = System.nanoTime();
+        for (int[] pair : pairs) {
+            jdbcTemplate.queryForList(COMMON_FILMS_SQL, Integer.class, pair[0], pair[1]);
+        }
+        long sqlMicros = (System.nanoTime() - start) / PAIRS / 1000;
+        start = System.nanoTime();
+        for (int[] pair : pairs) {
+            popularityIndex.sortByPopularity(userMarksIndex.commonFilmIds(pair[0], pair[1]));
+        }
+        long indexMicros = (System.nanoTime() - start) / PAIRS / 1000;
+        log.info("Общие фильмы: {} пользователей по {} оценок, загрузка индекса {} мс; пересечение в базе {} мкс, " +
+                "пересечение и сортировка по индексам {} мкс", USERS, MARKS_PER_USER, reloadMs, sqlMicros, indexMicros);
+        assertThat(indexMicros).isLessThan(sqlMicros);
+    }
+
+    /* Популярность фильмов убывает с ростом id */
+    private void createMarks(Random random, int userCount, int filmCount, int marksPerUser) {
+        List<Object[]> rows = new ArrayList<>(CHUNK_SIZE);
+        for (int id = 1; id <= filmCount; id++) {
+            rows.add(new Object[]{id, "Film " + id, "Description", Date.valueOf(LocalDate.of(2000, 1, 1)), 100, 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO FILMS (FILM_ID, FILM_NAME, FILM_DESCRIPTION, FILM_RELEASE_DATE, " +
+                "FILM_DURATION, MPA_ID) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+        for (int id = 1; id <= userCount; id++) {
+            rows.add(new Object[]{id, "user" + id + "@yandex.ru", "user" + id, "User " + id,
+                    Date.valueOf(LocalDate.of(1990, 1, 1))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (USER_ID, USER_EMAIL, USER_LOGIN, USER_NAME, USER_BIRTHDAY) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+        rows.clear();
+        for (int userId = 1; userId <= userCount; userId++) {
+            Set<Integer> filmIds = new HashSet<>();
+            while (filmIds.size() < marksPerUser) {
+                filmIds.add(1 + (int) (filmCount * Math.pow(random.nextDouble(), 2)));
+            }
+            for (int filmId : filmIds) {
+                rows.add(new Object[]{filmId, userId, 1 + random.nextInt(10)});
+            }
+            if (rows.size() >= CHUNK_SIZE) {
+                jdbcTemplate.batchUpdate("INSERT INTO MARKS (FILM_ID, USER_ID, RATING) VALUES (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO MARKS (FILM_ID, USER_ID, RATING) VALUES (?, ?, ?)", rows);
+        jdbcTemplate.update("UPDATE FILMS AS F SET MARK_COUNT = (SELECT COUNT(*) FROM MARKS AS M " +
+                "WHERE M.FILM_ID = F.FILM_ID), RATING_SUM = (SELECT COALESCE(SUM(RATING), 0) FROM MARKS AS M " +
+                "WHERE M.FILM_ID = F.FILM_ID)");
+    }
+
+    private static int[][] pairs(Random random, int userCount) {
+        int[][] pairs = new int[PAIRS][];
+        for (int i = 0; i < PAIRS; i++) {
+            pairs[i] = new int[]{1 + random.nextInt(userCount), 1 + random.nextInt(userCount)};
+        }
+        return pairs;
+    }
+
+    private void assertMatchesSql(int[][] pairs) {
+        for (int[] pair : pairs) {
+            assertThat(ids(filmService.commonFilms(pair[0], pair[1])))
+                    .isEqualTo(jdbcTemplate.queryForList(COMMON_FILMS_SQL, Integer.class, pair[0], pair[1]));
+        }
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private static String mark(int filmId, int userId, int rating) {
+        return "{\"filmId\":" + filmId + ",\"userId\":" + userId + ",\"rating\":" + rating + "}";
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE;
+
+/* Пул HikariCP вместо встроенной тестовой базы: собственный контекст с H2 в памяти */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(classes = JavaFilmorateApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:pool-load;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64",
+                /* Миграциям нужно больше одного соединения: у Flyway собственное подключение мимо пула */
+                "spring.flyway.url=jdbc:h2:mem:pool-load;DB_CLOSE_DELAY=-1",
+                "spring.flyway.user=${spring.datasource.username}",
+                "spring.flyway.password=${spring.datasource.password}",
+                "spring.datasource.hikari.maximum-pool-size=1",
+                "spring.datasource.hikari.minimum-idle=1",
+                /* При одном соединении на 16 потоков запрос /films/popular из нескольких запросов к базе
+                 * ждёт соединение дольше двух секунд из application.properties */
+                "spring.datasource.hikari.connection-timeout=30000",
+                "spring.datasource.hikari.register-mbeans=false"})
+@AutoConfigureTestDatabase(replace = NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext
+class ConnectionPoolLoadTest {
+    private static final int FILMS_COUNT = 200;
+    private static final int THREADS = 16;
+    private static final int REQUESTS = 800;
+
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final TestRestTemplate restTemplate;
+    private final FilmService filmService;
+    private final UserStorage userStorage;
+
+    @Test
+    @DisplayName("Метрики пула соединений публикуются, нагрузка на /films/popular обслуживается при любом размере пула")
+    void testPopularFilmsUnderLoad() throws InterruptedException, SQLException {
+        User user = userStorage.addUser(new User(null, "load@yandex.ru", "load", "Load",
+                LocalDate.of(1990, 1, 1), null));
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            Film film = filmService.addFilm(new Film(null, "Film " + i, "Description", LocalDate.of(2000, 1, 1),
+                    100, new Mpa(i % 5 + 1, null)));
+            filmService.addMark(film.getId(), user.getId(), i % 10 + 1);
+        }
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        assertThat(pool.getMaximumPoolSize()).isEqualTo(1);
+        for (String gauge : List.of("active", "idle", "pending", "max", "min")) {
+            assertThat(meterRegistry.find("hikaricp.connections." + gauge).gauge())
+                    .as("hikaricp.connections." + gauge).isNotNull();
+        }
+
+        /* Пул только растёт: уменьшение размера применяется лишь при фоновой очистке пула */
+        for (int poolSize : new int[]{1, 8}) {
+            pool.getHikariConfigMXBean().setMaximumPoolSize(poolSize);
+            Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+            long acquiredBefore = acquire.count();
+            double acquireNanosBefore = acquire.totalTime(TimeUnit.NANOSECONDS);
+
+            long start = System.nanoTime();
+            int failures = runLoad();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long acquired = acquire.count() - acquiredBefore;
+            double meanAcquireMs = (acquire.totalTime(TimeUnit.NANOSECONDS) - acquireNanosBefore) / acquired / 1e6;
+            log.info("Пул из {} соединений: {} запросов /films/popular в секунду, {} получений соединения, " +
+                    "среднее ожидание соединения {} мс", poolSize, Math.round(REQUESTS / seconds), acquired,
+                    String.format("%.3f", meanAcquireMs));
+            assertThat(failures).isZero();
+            assertThat(acquired).isGreaterThanOrEqualTo(REQUESTS);
+        }
+    }
+
+    private int runLoad() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger failures = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            tasks.add(() -> {
+                if (restTemplate.getForEntity("/films/popular?count=50", Film[].class).getStatusCode()
+                        != HttpStatus.OK) {
+                    failures.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failures.incrementAndGet();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return failures.get();
+    }
+}
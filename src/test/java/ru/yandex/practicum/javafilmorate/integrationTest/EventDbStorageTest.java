@@ -14,6 +14,7 @@ import ru.yandex.practicum.javafilmorate.model.Event;
 import ru.yandex.practicum.javafilmorate.model.EventType;
 import ru.yandex.practicum.javafilmorate.model.OperationType;
 import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.EventService;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.EventDbStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.UserDbStorage;
 
@@ -31,6 +32,7 @@ class EventDbStorageTest {
 
     private final UserDbStorage userDbStorage;
     private final EventDbStorage eventDbStorage;
+    private final EventService eventService;
     private final User firstUser = new User(1, "email@yandex.ru", "Login1", "Name1", LocalDate.parse("1970-01-01"), null);
     private final Event event1 = new Event(EventType.REVIEW, OperationType.ADD, 111, 1);
     private final Event event2 = new Event(EventType.REVIEW, OperationType.REMOVE, 222, 1);
@@ -67,4 +69,27 @@ class EventDbStorageTest {
         Assertions.assertThat(event.stream().anyMatch(e -> e.getOperation().equals("ADD")));
         Assertions.assertThat(event.stream().anyMatch(e -> e.getEventId() == 111));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Тест асинхронной записи событий через EventService")
+    void testShouldFlushQueuedEvents() {
+        eventService.add(new Event(EventType.LIKE, OperationType.ADD, 10, firstUser.getId()));
+        eventService.add(new Event(EventType.FRIEND, OperationType.ADD, 20, firstUser.getId()));
+        eventService.add(new Event(EventType.LIKE, OperationType.REMOVE, 10, firstUser.getId()));
+        List<Event> events = eventService.getUserFeed(firstUser.getId());
+        Assertions.assertThat(events).hasSize(5);
+        Assertions.assertThat(events.subList(2, 5)).extracting(Event::getEntityId).containsExactly(10, 20, 10);
+        Assertions.assertThat(events).extracting(Event::getEventId).isSorted();
+    }
+
+    @Test
+    @DisplayName("Тест постраничного получения ленты событий")
+    void testShouldReturnUserFeedPage() {
+        eventDbStorage.add(event3);
+        List<Event> firstPage = eventDbStorage.getUserEvents(firstUser.getId(), 0, 2);
+        Assertions.assertThat(firstPage).extracting(Event::getEntityId).containsExactly(111, 222);
+        List<Event> secondPage = eventDbStorage.getUserEvents(firstUser.getId(),
+                firstPage.get(1).getEventId(), 2);
+        Assertions.assertThat(secondPage).extracting(Event::getEntityId).containsExactly(333);
+    }
+}
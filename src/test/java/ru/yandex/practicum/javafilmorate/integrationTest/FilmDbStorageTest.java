@@ -8,16 +8,28 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
 import ru.yandex.practicum.javafilmorate.model.*;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.service.UserService;
 import ru.yandex.practicum.javafilmorate.storage.dao.DirectorStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.FilmAssembler;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.FilmDbStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.MarkDbStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.UserDbStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
 
@@ -31,6 +43,11 @@ public class FilmDbStorageTest {
     private final UserDbStorage userDbStorage;
     private final DirectorStorage directorStorage;
     private final MarkDbStorage marksDbStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmAssembler filmAssembler;
 
     private final Film film1 = new Film(null, "Film1", "Description1", LocalDate.parse("1970-01-01"),
             140, new Mpa(1, "G"));
@@ -88,6 +105,16 @@ public class FilmDbStorageTest {
         Assertions.assertEquals(3, current.size(), "Количество фильмов не совпадает");
     }
 
+    @Test
+    @DisplayName("Проверка постраничного метода findAll(afterId, limit) для Film")
+    void testFindAllAfterId() {
+        List<Film> firstPage = filmDbStorage.findAll(0, 2);
+        Assertions.assertEquals(2, firstPage.size(), "Размер первой страницы не совпадает");
+        List<Film> secondPage = filmDbStorage.findAll(firstPage.get(1).getId(), 2);
+        Assertions.assertEquals(1, secondPage.size(), "Размер второй страницы не совпадает");
+        Assertions.assertEquals(film3Id, secondPage.get(0).getId(), "Страница начинается не с того фильма");
+    }
+
     @Test
     @DisplayName("Проверка метода deleteFilm")
     void testDeleteFilm() {
@@ -131,10 +158,112 @@ public class FilmDbStorageTest {
         marksDbStorage.addMark(new Mark(film1Id, user2Id, 4));
         marksDbStorage.addMark(new Mark(film2Id, user2Id, 6));
         marksDbStorage.addMark(new Mark(film2Id, user3Id, 5));
-        List<Film> films = filmDbStorage.getPopularFilms(2);
+        List<Film> films = new FilmSqlQueries(filmAssembler).getPopularFilms(2);
         /*Проверяем правильность полученного списка*/
         Assertions.assertEquals(2, films.size(), "Размер списка популярных фильмов не 2");
         Assertions.assertEquals(film2Id, films.get(0).getId(), "Не выявлен самый популярный фильм");
         Assertions.assertEquals(film3Id, films.get(1).getId(), "Не выявлен самый непопулярный фильм");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Проверка индекса популярности на совпадение с выборкой из хранилища")
+    void testPopularityIndexMatchesStorage() {
+        marksDbStorage.addMark(new Mark(film1Id, user1Id, 2));
+        marksDbStorage.addMark(new Mark(film2Id, user1Id, 4));
+        marksDbStorage.addMark(new Mark(film3Id, user1Id, 7));
+        marksDbStorage.addMark(new Mark(film2Id, user2Id, 6));
+        popularityIndex.reload();
+        Assertions.assertEquals(List.of(film2Id, film3Id), popularityIndex.getPopular(2),
+                "Порядок популярных фильмов не совпадает");
+        popularityIndex.addRating(film1Id, 10);
+        Assertions.assertEquals(List.of(film1Id, film2Id), popularityIndex.getPopularByGenre(10, 1),
+                "Порядок популярных фильмов жанра не совпадает");
+        Assertions.assertEquals(List.of(film3Id), popularityIndex.getPopularByGenreAndYear(10, 3, 1990),
+                "Не найден фильм по жанру и году");
+        popularityIndex.removeFilm(film1Id);
+        Assertions.assertEquals(List.of(film2Id), popularityIndex.getPopularByYear(10, 1980),
+                "Не найден фильм по году");
+        Assertions.assertEquals(List.of(film2Id, film3Id), popularityIndex.getPopular(10),
+                "Удалённый фильм остался в индексе");
+        Assertions.assertEquals(List.of(film2Id, film3Id, film1Id),
+                popularityIndex.sortByPopularity(new int[]{film1Id, film3Id, film2Id}),
+                "Фильм вне рейтинга не добавлен в конец");
+    }
+
+    @Test
+    @DisplayName("Проверка сверки агрегатов оценок фильмов")
+    void testReconcileRatingAggregates() {
+        marksDbStorage.addMark(new Mark(film1Id, user1Id, 2));
+        marksDbStorage.addMark(new Mark(film1Id, user2Id, 4));
+        marksDbStorage.addMark(new Mark(film2Id, user1Id, 5));
+        marksDbStorage.deleteMark(film2Id, user1Id);
+        Assertions.assertEquals(0, marksDbStorage.reconcileRatingAggregates(), "Агрегаты разошлись с MARKS");
+        jdbcTemplate.update("UPDATE FILMS SET RATING_SUM = 100 WHERE FILM_ID = ?", film3Id);
+        Assertions.assertEquals(1, marksDbStorage.reconcileRatingAggregates(), "Расхождение не обнаружено");
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT RATING_SUM FROM FILMS WHERE FILM_ID = ?",
+                Long.class, film3Id), "Расхождение не исправлено");
+        userDbStorage.deleteUser(user2Id);
+        Assertions.assertEquals(0, marksDbStorage.reconcileRatingAggregates(),
+                "Агрегаты разошлись после удаления пользователя");
+    }
+
+    @Test
+    @DisplayName("Фильмы по большому списку id в порядке популярности")
+    void testFindPopularByManyIds() {
+        marksDbStorage.addMark(new Mark(film3Id, user1Id, 7));
+        marksDbStorage.addMark(new Mark(film1Id, user1Id, 2));
+        List<Integer> filmIds = new ArrayList<>();
+        for (int id = 1; id <= 100_000; id++) {
+            filmIds.add(id);
+        }
+        Assertions.assertEquals(List.of(film3Id, film1Id, film2Id), filmDbStorage.findPopularByIds(filmIds).stream()
+                .map(Film::getId).collect(Collectors.toList()), "Порядок фильмов по списку id не совпадает");
+    }
+
+    @Test
+    @DisplayName("Рейтинг популярности не теряет оценки при перезагрузке и удалении пользователя")
+    void testPopularityIndexConsistentWithConcurrentReload() throws Exception {
+        List<Integer> userIds = new ArrayList<>(List.of(user1Id, user2Id, user3Id));
+        for (int i = 0; i < 30; i++) {
+            userIds.add(userDbStorage.addUser(new User(null, "user" + i + "@yandex.ru", "user" + i, "User " + i,
+                    LocalDate.parse("1990-01-01"), null)).getId());
+        }
+        AtomicBoolean marking = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Future<?> reloads = executor.submit(() -> {
+            while (marking.get()) {
+                popularityIndex.reload();
+            }
+        });
+        List<Future<?>> marks = new ArrayList<>();
+        for (int filmId : List.of(film1Id, film2Id, film3Id)) {
+            marks.add(executor.submit(() -> {
+                for (int i = 0; i < userIds.size(); i++) {
+                    filmService.addMark(filmId, userIds.get(i), 1 + (filmId + i) % 10);
+                }
+            }));
+        }
+        for (Future<?> future : marks) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        marking.set(false);
+        reloads.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertScoresMatchStorage();
+
+        userService.deleteUser(user1Id);
+        assertScoresMatchStorage();
+        /* Выборка из хранилища упорядочена по той же сумме оценок, что и индекс */
+        Assertions.assertEquals(popularityIndex.getPopularByGenre(10, 1), new FilmSqlQueries(filmAssembler)
+                .getPopularByGenre(10, 1).stream().map(Film::getId).collect(Collectors.toList()),
+                "Порядок фильмов жанра не совпадает");
+    }
+
+    private void assertScoresMatchStorage() {
+        for (int filmId : List.of(film1Id, film2Id, film3Id)) {
+            Assertions.assertEquals(jdbcTemplate.queryForObject("SELECT RATING_SUM FROM FILMS WHERE FILM_ID = ?",
+                    Long.class, filmId), popularityIndex.getScore(filmId),
+                    "Рейтинг фильма с id " + filmId + " разошёлся с хранилищем");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.*;
+import ru.yandex.practicum.javafilmorate.service.DirectorService;
+import ru.yandex.practicum.javafilmorate.service.EventService;
+import ru.yandex.practicum.javafilmorate.service.FilmImportService;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.javafilmorate.utils.InvalidDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class FilmImportTest {
+    private static final int FILMS_COUNT = 1200;
+    private static final Set<Integer> BLANK_NAME = Set.of(7, 700);
+    private static final Set<Integer> UNKNOWN_GENRE = Set.of(501);
+    private static final Set<Integer> WRONG_DURATION = Set.of(999);
+    private static final Set<Integer> NO_DESCRIPTION = Set.of(1100);
+
+    private final FilmImportService filmImportService;
+    private final FilmService filmService;
+    private final DirectorService directorService;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final MarkStorage markStorage;
+    private final EventService eventService;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Test
+    @DisplayName("Пакетная загрузка сохраняет корректные фильмы и сообщает об ошибках по записям")
+    void testImportFilms() {
+        Director director = directorService.addDirector(new Director(null, "Bulk Director"));
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            String name = BLANK_NAME.contains(i) ? "" : "Imported " + i;
+            int genreId = UNKNOWN_GENRE.contains(i) ? 999 : i % 6 + 1;
+            String duration = WRONG_DURATION.contains(i) ? "\"long\"" : String.valueOf(90 + i % 60);
+            String description = NO_DESCRIPTION.contains(i) ? "null" : "\"Description " + i + "\"";
+            json.add("{\"name\":\"" + name + "\",\"description\":" + description + "," +
+                    "\"releaseDate\":\"" + (1950 + i % 70) + "-05-01\",\"duration\":" + duration + "," +
+                    "\"mpa\":{\"id\":" + (i % 5 + 1) + "},\"genres\":[{\"id\":" + genreId + "}]," +
+                    "\"directors\":[{\"id\":" + director.getId() + "}]}");
+        }
+
+        BulkImportResult result = filmImportService.importFilms(stream(json.toString()));
+
+        Set<Integer> failedIndexes = result.getErrors().stream()
+                .map(BulkImportError::getIndex)
+                .collect(Collectors.toSet());
+        assertThat(failedIndexes).containsExactlyInAnyOrder(7, 700, 501, 999, 1100);
+        assertThat(result.getFailed()).isEqualTo(5);
+        assertThat(result.getImported()).isEqualTo(FILMS_COUNT - 5);
+        assertThat(result.getRecordsPerSecond()).isPositive();
+
+        List<Film> films = filmStorage.findAll();
+        assertThat(films).hasSize(FILMS_COUNT - 5);
+        Film last = films.get(films.size() - 1);
+        assertThat(last.getName()).isEqualTo("Imported " + (FILMS_COUNT - 1));
+        assertThat(last.getGenres()).hasSize(1);
+        assertThat(last.getDirectors()).extracting(Director::getId).containsExactly(director.getId());
+        assertThat(filmService.searchBySubstring("imported 119", "title")).hasSize(11);
+        assertThat(filmService.getPopularByYear(FILMS_COUNT, 1950)).hasSize(17);
+    }
+
+    @Test
+    @DisplayName("Некорректный JSON прерывает загрузку, уже записанные пакеты сохраняются")
+    void testImportMalformedJson() {
+        StringJoiner json = new StringJoiner(",", "[", "");
+        for (int i = 0; i < 600; i++) {
+            json.add("{\"name\":\"Film " + i + "\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\"," +
+                    "\"duration\":100,\"mpa\":{\"id\":1}}");
+        }
+        json.add("{\"name\":");
+
+        assertThatThrownBy(() -> filmImportService.importFilms(stream(json.toString())))
+                .isInstanceOf(InvalidDataException.class);
+        assertThat(filmStorage.findAll()).hasSize(600);
+        assertThatThrownBy(() -> filmImportService.importFilms(stream("{\"name\":\"Film\"}")))
+                .isInstanceOf(InvalidDataException.class);
+    }
+
+    @Test
+    @DisplayName("Пакетная загрузка оценок обновляет агрегаты, индекс популярности и ленту событий")
+    void testImportMarks() {
+        int[] filmIds = new int[3];
+        for (int i = 0; i < filmIds.length; i++) {
+            filmIds[i] = filmService.addFilm(new Film(null, "Film " + i, "Description", LocalDate.of(2000, 1, 1),
+                    100, new Mpa(1, null))).getId();
+        }
+        int[] userIds = new int[2];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = userStorage.addUser(new User(null, "user" + i + "@yandex.ru", "login" + i, "Name",
+                    LocalDate.of(1990, 1, 1), null)).getId();
+        }
+        filmService.addMark(filmIds[0], userIds[0], 3);
+        String json = "[" +
+                mark(filmIds[0], userIds[0], 9) + "," +
+                mark(filmIds[1], userIds[0], 5) + "," +
+                mark(9999, userIds[0], 5) + "," +
+                mark(filmIds[1], 9999, 5) + "," +
+                mark(filmIds[2], userIds[1], 11) + "," +
+                mark(filmIds[2], userIds[1], 4) + "," +
+                mark(filmIds[2], userIds[1], 7) + "]";
+
+        BulkImportResult result = filmImportService.importMarks(stream(json));
+
+        assertThat(result.getErrors()).extracting(BulkImportError::getIndex).containsExactlyInAnyOrder(2, 3, 4);
+        /* Три повтора одной пары записываются одной оценкой */
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(markStorage.getMarks(filmIds[0])).containsExactly(new Mark(filmIds[0], userIds[0], 9));
+        assertThat(markStorage.getMarks(filmIds[2])).containsExactly(new Mark(filmIds[2], userIds[1], 7));
+        assertThat(markStorage.reconcileRatingAggregates()).isZero();
+        assertThat(popularityIndex.getScore(filmIds[0])).isEqualTo(9);
+        assertThat(popularityIndex.getScore(filmIds[2])).isEqualTo(7);
+        assertThat(filmService.getPopularFilms(1)).extracting(Film::getId).containsExactly(filmIds[0]);
+        assertThat(eventService.getUserFeed(userIds[0])).extracting(Event::getOperation)
+                .containsExactlyInAnyOrder(OperationType.ADD, OperationType.UPDATE, OperationType.ADD);
+        assertThat(eventService.getUserFeed(userIds[1])).extracting(Event::getOperation)
+                .containsExactly(OperationType.ADD);
+
+        /* Повтор прежней оценки не меняет агрегаты и не попадает в ленту */
+        result = filmImportService.importMarks(stream("[" + mark(filmIds[1], userIds[0], 5) + "]"));
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(popularityIndex.getScore(filmIds[1])).isEqualTo(5);
+        assertThat(eventService.getUserFeed(userIds[0])).hasSize(3);
+    }
+
+    private static String mark(int filmId, int userId, int rating) {
+        return "{\"filmId\":" + filmId + ",\"userId\":" + userId + ",\"rating\":" + rating + "}";
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
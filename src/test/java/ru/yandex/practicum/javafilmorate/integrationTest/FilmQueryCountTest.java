@@ -0,0 +1,131 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.*;
+import ru.yandex.practicum.javafilmorate.storage.dao.DirectorStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.UserStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.FilmDbStorage;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@SpringBootTest(classes = {JavaFilmorateApplication.class, FilmQueryCountTest.QueryCounterConfig.class})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class FilmQueryCountTest {
+    /* Один запрос к FILMS и по одному запросу на жанры, режиссёров и оценки, справочники берутся из кэша */
+    private static final int QUERIES_PER_LIST = 4;
+    private static final int FILMS_COUNT = 20;
+    private static final AtomicInteger QUERY_COUNTER = new AtomicInteger();
+
+    private final FilmDbStorage filmDbStorage;
+    private final UserStorage userStorage;
+    private final MarkStorage markStorage;
+    private final DirectorStorage directorStorage;
+    private Director director;
+
+    @BeforeEach
+    void createFilmData() {
+        director = directorStorage.addDirector(new Director(null, "DirectorName"));
+        User user = userStorage.addUser(new User(null, "email@yandex.ru", "Login", "Name",
+                LocalDate.parse("1970-01-01"), null));
+        for (int i = 1; i <= FILMS_COUNT; i++) {
+            Film film = new Film(null, "Film" + i, "Description" + i, LocalDate.of(1970 + i, 1, 1),
+                    100 + i, new Mpa(i % 5 + 1, null));
+            film.setGenres(List.of(new Genre(i % 6 + 1, null)));
+            film.getDirectors().add(director);
+            filmDbStorage.addFilm(film);
+            markStorage.addMark(new Mark(film.getId(), user.getId(), i % 10 + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Количество запросов findAll не зависит от числа фильмов")
+    void testFindAllQueryCount() {
+        List<Film> films = countQueries(filmDbStorage::findAll);
+        Assertions.assertEquals(FILMS_COUNT, films.size(), "Количество фильмов не совпадает");
+        Film film = films.get(0);
+        Assertions.assertNotNull(film.getMpa().getName(), "Не заполнено название рейтинга");
+        Assertions.assertEquals(1, film.getGenres().size(), "Не заполнены жанры");
+        Assertions.assertEquals(1, film.getDirectors().size(), "Не заполнены режиссёры");
+        Assertions.assertEquals(1, film.getMarks().size(), "Не заполнены оценки");
+    }
+
+    @Test
+    @DisplayName("Количество запросов списочных методов FilmStorage постоянно")
+    void testListMethodsQueryCount() {
+        List<Film> page = countQueries(() -> filmDbStorage.findAll(0, FILMS_COUNT));
+        countQueries(() -> filmDbStorage.findByIds(page.stream().map(Film::getId).collect(Collectors.toList())));
+        /* Дополнительный запрос проверяет существование режиссёра */
+        QUERY_COUNTER.set(0);
+        List<Film> films = filmDbStorage.findDirectorFilmsByYearOrLikes(director.getId(), "year");
+        Assertions.assertEquals(FILMS_COUNT, films.size(), "Количество фильмов режиссёра не совпадает");
+        Assertions.assertTrue(QUERY_COUNTER.get() <= QUERIES_PER_LIST + 1,
+                "Выполнено " + QUERY_COUNTER.get() + " запросов");
+    }
+
+    private List<Film> countQueries(Supplier<List<Film>> call) {
+        QUERY_COUNTER.set(0);
+        List<Film> films = call.get();
+        Assertions.assertFalse(films.isEmpty(), "Получен пустой список фильмов");
+        Assertions.assertTrue(QUERY_COUNTER.get() > 0, "Запросы к базе не были подсчитаны");
+        Assertions.assertTrue(QUERY_COUNTER.get() <= QUERIES_PER_LIST,
+                "Выполнено " + QUERY_COUNTER.get() + " запросов");
+        return films;
+    }
+
+    @TestConfiguration
+    static class QueryCounterConfig {
+        @Bean
+        static BeanPostProcessor queryCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource) {
+                        return countingProxy(DataSource.class, bean);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        private static <T> T countingProxy(Class<T> type, Object target) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement") || name.equals("createStatement")) {
+                            QUERY_COUNTER.incrementAndGet();
+                        }
+                        try {
+                            Object result = method.invoke(target, args);
+                            return result instanceof Connection ? countingProxy(Connection.class, result) : result;
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Director;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.model.Suggestion;
+import ru.yandex.practicum.javafilmorate.model.SuggestionType;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.DirectorService;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.service.UserService;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.FilmAssembler;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class FilmSearchTest {
+    private static final String[] WORDS = {"Крёстный", "отец", "Matrix", "Reloaded", "Побег", "из", "Шоушенка",
+            "Alien", "100%_done"};
+    private static final int FILMS_COUNT = 200;
+    private static final int ROUNDS = 50;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final DirectorService directorService;
+    private final FilmAssembler filmAssembler;
+
+    @BeforeEach
+    void createFilms() {
+        Director nolan = directorService.addDirector(new Director(null, "Christopher Nolan"));
+        Director wachowski = directorService.addDirector(new Director(null, "Лана Вачовски"));
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            Film film = new Film(null, WORDS[i % WORDS.length] + " " + WORDS[(i * 7) % WORDS.length] + " " + i,
+                    "Description", LocalDate.of(1990 + i % 30, 1, 1), 100, new Mpa(1, null));
+            film.getDirectors().add(i % 2 == 0 ? nolan : wachowski);
+            filmService.addFilm(film);
+        }
+    }
+
+    @Test
+    @DisplayName("Поиск по индексу совпадает с поиском через SQL")
+    void testIndexMatchesSql() {
+        FilmSqlQueries sqlQueries = new FilmSqlQueries(filmAssembler);
+        for (String by : List.of("title", "director", "title,director")) {
+            for (String query : List.of("отец", "MATRIX", "ix", "ачов", "nolan", "%_d", "шоу", "нет такого")) {
+                assertThat(filmIds(filmService.searchBySubstring(query, by)))
+                        .as("query=%s, by=%s", query, by)
+                        .isEqualTo(filmIds(sqlQueries.searchBySubstring(query, by)));
+            }
+        }
+        long indexNanos = measure(() -> filmService.searchBySubstring("reloaded", "title,director"));
+        long sqlNanos = measure(() -> sqlQueries.searchBySubstring("reloaded", "title,director"));
+        log.info("Поиск фильмов: индекс {} мкс, SQL {} мкс на запрос", indexNanos / ROUNDS / 1000,
+                sqlNanos / ROUNDS / 1000);
+    }
+
+    @Test
+    @DisplayName("Поисковый индекс обновляется при изменении фильма и режиссёра")
+    void testIndexFollowsChanges() {
+        Film found = filmService.searchBySubstring("alien", "title").get(0);
+        Film film = new Film(found.getId(), "Чужой", found.getDescription(), found.getReleaseDate(),
+                found.getDuration(), found.getMpa());
+        film.setDirectors(found.getDirectors());
+        filmService.updateFilm(film);
+        assertThat(filmIds(filmService.searchBySubstring("чужой", "title"))).containsExactly(film.getId());
+        assertThat(filmIds(filmService.searchBySubstring(found.getName(), "title"))).doesNotContain(film.getId());
+
+        Director director = film.getDirectors().iterator().next();
+        directorService.updateDirector(new Director(director.getId(), "Ридли Скотт"));
+        assertThat(filmService.searchBySubstring("скотт", "director")).hasSize(FILMS_COUNT / 2);
+        directorService.deleteDirector(director.getId());
+        assertThat(filmService.searchBySubstring("скотт", "director")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Подсказки по префиксу слова упорядочены по популярности")
+    void testSuggest() {
+        List<Suggestion> suggestions = filmService.suggest("Matr", 5);
+        assertThat(suggestions).hasSize(5);
+        assertThat(suggestions).allMatch(suggestion -> suggestion.getType() == SuggestionType.FILM
+                && suggestion.getName().toLowerCase().contains("matrix"));
+
+        assertThat(filmService.suggest("ачов", 5)).isEmpty();
+        assertThat(filmService.suggest("вачов", 5)).extracting(Suggestion::getName).containsExactly("Лана Вачовски");
+        assertThat(filmService.suggest("лана вач", 5)).extracting(Suggestion::getName).containsExactly("Лана Вачовски");
+        assertThat(filmService.suggest("лана ачов", 5)).isEmpty();
+        assertThat(filmService.suggest("  ", 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Порядок подсказок определяет популярность, а имя — только при равной популярности")
+    void testSuggestOrderedByPopularity() {
+        User user = userService.addUser(new User(null, "fan@yandex.ru", "fan", "Fan", LocalDate.of(1990, 1, 1),
+                null));
+        User other = userService.addUser(new User(null, "other@yandex.ru", "other", "Other",
+                LocalDate.of(1990, 1, 1), null));
+
+        /* Режиссёр с популярными фильмами опережает непопулярный фильм, который раньше по имени */
+        filmService.addFilm(new Film(null, "Лабиринт", "Description", LocalDate.of(2000, 1, 1), 100,
+                new Mpa(1, null)));
+        assertThat(filmService.suggest("ла", 2)).extracting(Suggestion::getName)
+                .containsExactly("Лабиринт", "Лана Вачовски");
+        int directorId = filmService.suggest("вачов", 1).get(0).getId();
+        int directorFilmId = filmService.findDirectorFilmsByYearOrLikes(directorId, "year").get(0).getId();
+        filmService.addMark(directorFilmId, user.getId(), 2);
+        assertThat(filmService.suggest("ла", 2)).extracting(Suggestion::getName)
+                .containsExactly("Лана Вачовски", "Лабиринт");
+
+        /* Среди фильмов с равной популярностью порядок по имени, оценённые фильмы поднимаются выше */
+        List<Suggestion> byName = filmService.suggest("Matr", 100);
+        assertThat(byName).extracting(Suggestion::getName).isSorted();
+        Suggestion last = byName.get(byName.size() - 1);
+        Suggestion secondLast = byName.get(byName.size() - 2);
+        filmService.addMark(last.getId(), user.getId(), 9);
+        filmService.addMark(secondLast.getId(), other.getId(), 4);
+        assertThat(filmService.suggest("Matr", 3)).extracting(Suggestion::getId)
+                .containsExactly(last.getId(), secondLast.getId(), byName.get(0).getId());
+    }
+
+    private List<Integer> filmIds(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private long measure(Supplier<List<Film>> call) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            call.get();
+        }
+        return System.nanoTime() - start;
+    }
+}
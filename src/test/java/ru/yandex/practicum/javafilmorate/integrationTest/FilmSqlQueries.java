@@ -0,0 +1,53 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.FilmAssembler;
+
+import java.util.List;
+import java.util.Map;
+
+/* Выборки популярных фильмов и поиск напрямую через SQL: эталон, с которым тесты сверяют индексы в памяти */
+class FilmSqlQueries {
+    private final FilmAssembler filmAssembler;
+
+    FilmSqlQueries(FilmAssembler filmAssembler) {
+        this.filmAssembler = filmAssembler;
+    }
+
+    List<Film> getPopularFilms(int limit) {
+        String sqlQuery = "SELECT * FROM FILMS WHERE MARK_COUNT > 0 ORDER BY RATING_SUM DESC, FILM_ID LIMIT ?";
+        return filmAssembler.query(sqlQuery, limit);
+    }
+
+    List<Film> getPopularByGenre(int count, int genreId) {
+        String sqlQuery = "SELECT F.* FROM FILMS AS F " +
+                "JOIN FILM_GENRES AS FG ON F.FILM_ID = FG.FILM_ID " +
+                "WHERE FG.GENRE_ID = ? " +
+                "ORDER BY F.RATING_SUM DESC, F.FILM_ID LIMIT ?";
+        return filmAssembler.query(sqlQuery, genreId, count);
+    }
+
+    List<Film> searchBySubstring(String query, String by) {
+        String sql;
+        if (by.equalsIgnoreCase("director")) {
+            sql = "SELECT DISTINCT F.* FROM FILMS AS F " +
+                    "JOIN FILMS_DIRECTORS AS FD ON F.FILM_ID = FD.FILM_ID " +
+                    "JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
+                    "WHERE LOWER(D.DIRECTOR_NAME) LIKE :pattern ESCAPE '\\' " +
+                    "ORDER BY F.RATING_SUM DESC, F.FILM_ID";
+        } else if (by.equalsIgnoreCase("title")) {
+            sql = "SELECT * FROM FILMS " +
+                    "WHERE LOWER(FILM_NAME) LIKE :pattern ESCAPE '\\' " +
+                    "ORDER BY RATING_SUM DESC, FILM_ID";
+        } else {
+            sql = "SELECT DISTINCT F.* FROM FILMS AS F " +
+                    "LEFT JOIN FILMS_DIRECTORS AS FD ON F.FILM_ID = FD.FILM_ID " +
+                    "LEFT JOIN DIRECTORS AS D ON FD.DIRECTOR_ID = D.DIRECTOR_ID " +
+                    "WHERE LOWER(D.DIRECTOR_NAME) LIKE :pattern ESCAPE '\\' " +
+                    "OR LOWER(F.FILM_NAME) LIKE :pattern ESCAPE '\\' " +
+                    "ORDER BY F.RATING_SUM DESC, F.FILM_ID";
+        }
+        String pattern = "%" + query.toLowerCase().replaceAll("([\\\\%_])", "\\\\$1") + "%";
+        return filmAssembler.query(sql, Map.of("pattern", pattern));
+    }
+}
@@ -0,0 +1,98 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Event;
+import ru.yandex.practicum.javafilmorate.model.EventType;
+import ru.yandex.practicum.javafilmorate.model.OperationType;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.EventService;
+import ru.yandex.practicum.javafilmorate.service.FriendFeedService;
+import ru.yandex.practicum.javafilmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class, properties = "filmorate.feed.celebrity-followers=1")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class FriendFeedTest {
+    private static final int EVENTS_PER_USER = 300;
+    private static final int ROUNDS = 200;
+
+    private final UserService userService;
+    private final EventService eventService;
+    private final FriendFeedService friendFeedService;
+    private int readerId;
+    private int celebrityId;
+    private int friendId;
+
+    @BeforeEach
+    void createFriends() {
+        readerId = addUser("reader");
+        celebrityId = addUser("celebrity");
+        friendId = addUser("friend");
+        int fanId = addUser("fan");
+        /* У celebrity два подписчика, поэтому при пороге 1 его события дочитываются при чтении */
+        userService.addFriend(readerId, celebrityId);
+        userService.addFriend(fanId, celebrityId);
+        userService.addFriend(readerId, friendId);
+    }
+
+    @Test
+    @DisplayName("Лента друзей совпадает при раздаче при записи и при чтении")
+    void testFriendsFeedModesMatch() {
+        eventService.getFriendsFeed(readerId, Integer.MAX_VALUE, 1);
+        for (int i = 0; i < EVENTS_PER_USER; i++) {
+            eventService.add(new Event(EventType.LIKE, OperationType.ADD, i, i % 2 == 0 ? celebrityId : friendId));
+        }
+        /* Чтение ленты друзей не ждёт фоновой записи событий */
+        eventService.flush();
+        List<Event> feed = eventService.getFriendsFeed(readerId, Integer.MAX_VALUE, 50);
+        assertThat(feed).hasSize(50);
+        assertThat(feed).extracting(Event::getUserId).contains(celebrityId, friendId);
+        assertThat(eventIds(feed))
+                .isEqualTo(eventIds(friendFeedService.getFeedOnRead(readerId, Integer.MAX_VALUE, 50)));
+
+        int before = feed.get(feed.size() - 1).getEventId();
+        assertThat(eventIds(friendFeedService.getFeed(readerId, before, 500)))
+                .isEqualTo(eventIds(friendFeedService.getFeedOnRead(readerId, before, 500)));
+
+        long pushNanos = measure(() -> friendFeedService.getFeed(readerId, Integer.MAX_VALUE, 50));
+        long pullNanos = measure(() -> friendFeedService.getFeedOnRead(readerId, Integer.MAX_VALUE, 50));
+        log.info("Лента друзей: раздача при записи {} мкс, чтение из базы {} мкс на запрос",
+                pushNanos / ROUNDS / 1000, pullNanos / ROUNDS / 1000);
+    }
+
+    private List<Integer> eventIds(List<Event> events) {
+        return events.stream().map(Event::getEventId).collect(Collectors.toList());
+    }
+
+    private long measure(Supplier<List<Event>> call) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            call.get();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private int addUser(String login) {
+        return userService.addUser(new User(null, login + "@yandex.ru", login, login,
+                LocalDate.parse("1990-01-01"), null)).getId();
+    }
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.storage.dao.FriendStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.RowMappers;
+import ru.yandex.practicum.javafilmorate.storage.index.FriendGraph;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+/* Граф со степенным распределением: немногие пользователи популярны и у некоторых очень много друзей */
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class FriendGraphBenchmarkTest {
+    private static final int USERS = 50_000;
+    private static final int EDGES = 1_000_000;
+    private static final int SMALL_USERS = 2_000;
+    private static final int SMALL_EDGES = 20_000;
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int PAIRS = 200;
+    private static final String USER_FRIENDS_SQL = "SELECT USERS.* FROM FRIENDS" +
+            " JOIN USERS ON FRIENDS.FRIEND_ID = USERS.USER_ID WHERE FRIENDS.USER_ID = ?";
+    private static final String COMMON_FRIENDS_SQL = " SELECT * FROM USERS WHERE USER_ID IN ((SELECT TBL1.FRIEND_ID " +
+            " FROM (SELECT USER_ID, FRIEND_ID FROM FRIENDS WHERE USER_ID = ?) AS TBL1 " +
+            " INNER JOIN (SELECT USER_ID, FRIEND_ID FROM FRIENDS WHERE USER_ID = ?) AS TBL2 " +
+            " ON TBL1.FRIEND_ID = TBL2.FRIEND_ID)) ";
+    private static final String IS_REGISTERED_SQL = "SELECT 1 FROM USERS WHERE USER_ID = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FriendStorage friendStorage;
+    private final FriendGraph friendGraph;
+
+    @Test
+    @DisplayName("Друзья и общие друзья из графа в памяти совпадают с запросами к базе")
+    void testFriendGraphMatchesSql() {
+        Random random = new Random(7);
+        createGraph(random, SMALL_USERS, SMALL_EDGES);
+        friendGraph.reload();
+        for (int[][] samples : samples(random, SMALL_USERS)) {
+            assertMatchesSql(samples);
+        }
+    }
+
+    @Tag("benchmark")
+    @Test
+    @DisplayName("Друзья и общие друзья из графа в памяти совпадают с запросами к базе на графе в миллион связей")
+    void testFriendGraphMatchesSqlOnPowerLawGraph() {
+        Random random = new Random(7);
+        createGraph(random, USERS, EDGES);
+
+        long start = System.nanoTime();
+        friendGraph.reload();
+        long reloadMs = (System.nanoTime() - start) / 1_000_000;
+
+        int[][][] samplesByKind = samples(random, USERS);
+        int[][] hubs = samplesByKind[0];
+        /* Прогрев обоих способов и сверка результатов */
+        for (int[][] samples : samplesByKind) {
+            assertMatchesSql(samples);
+        }
+        int maxDegree = 0;
+        for (int id = 1; id <= USERS; id++) {
+            maxDegree = Math.max(maxDegree, friendGraph.friendIds(id).length);
+        }
+        log.info("Граф дружбы: {} пользователей, {} связей, наибольшее число друзей {}, загрузка {} мс",
+                USERS, EDGES, maxDegree, reloadMs);
+
+        long sqlCommonHubs = 0;
+        long graphCommonHubs = 0;
+        for (int[][] samples : samplesByKind) {
+            String kind = samples == hubs ? "популярные" : "случайные";
+            long sqlFriends = measure(samples, sample -> userFriendsSql(sample[0]));
+            long graphFriends = measure(samples, sample -> friendStorage.getUserFriends(sample[0]));
+            long sqlCommon = measure(samples, sample -> commonFriendsSql(sample[0], sample[1]));
+            long graphCommon = measure(samples, sample -> friendStorage.getCommonsFriends(sample[0], sample[1]));
+            long mergeOnly = measure(samples, sample -> friendGraph.commonFriendIds(sample[0], sample[1]));
+            log.info("Пользователи {}: друзья — запрос к базе {} мкс, граф и пакетная загрузка {} мкс; " +
+                            "общие друзья — запрос к базе {} мкс, граф и пакетная загрузка {} мкс, " +
+                            "пересечение массивов {} мкс", kind, sqlFriends / PAIRS / 1000,
+                    graphFriends / PAIRS / 1000, sqlCommon / PAIRS / 1000, graphCommon / PAIRS / 1000,
+                    mergeOnly / PAIRS / 1000);
+            if (samples == hubs) {
+                sqlCommonHubs = sqlCommon;
+                graphCommonHubs = graphCommon;
+            }
+        }
+        assertThat(graphCommonHubs).isLessThan(sqlCommonHubs);
+    }
+
+    private void createGraph(Random random, int userCount, int edgeCount) {
+        List<Object[]> users = new ArrayList<>(CHUNK_SIZE);
+        for (int id = 1; id <= userCount; id++) {
+            users.add(new Object[]{id, "user" + id + "@yandex.ru", "user" + id, "User " + id,
+                    Date.valueOf(LocalDate.of(1990, 1, 1))});
+            if (users.size() == CHUNK_SIZE || id == userCount) {
+                insertUsers(users);
+                users.clear();
+            }
+        }
+        /* Число друзей и популярность пользователя убывают степенно с ростом id */
+        Set<Long> pairs = new HashSet<>(edgeCount * 4 / 3 + 1);
+        while (pairs.size() < edgeCount) {
+            int userId = 1 + (int) (userCount * Math.pow(random.nextDouble(), 2));
+            int friendId = 1 + (int) (userCount * Math.pow(random.nextDouble(), 3));
+            if (userId != friendId) {
+                pairs.add((long) userId << 32 | friendId);
+            }
+        }
+        List<Object[]> edges = new ArrayList<>(CHUNK_SIZE);
+        for (long pair : pairs) {
+            edges.add(new Object[]{(int) (pair >>> 32), (int) pair});
+            if (edges.size() == CHUNK_SIZE) {
+                jdbcTemplate.batchUpdate("INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (?, ?)", edges);
+                edges.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (?, ?)", edges);
+    }
+
+    /* Пары среди самых популярных пользователей и пары случайных пользователей */
+    private static int[][][] samples(Random random, int userCount) {
+        int[][] hubs = new int[PAIRS][];
+        int[][] typical = new int[PAIRS][];
+        int hubCount = Math.min(1000, userCount / 10);
+        for (int i = 0; i < PAIRS; i++) {
+            hubs[i] = new int[]{1 + random.nextInt(hubCount), 1 + random.nextInt(hubCount)};
+            typical[i] = new int[]{1 + random.nextInt(userCount), 1 + random.nextInt(userCount)};
+        }
+        return new int[][][]{hubs, typical};
+    }
+
+    private void assertMatchesSql(int[][] samples) {
+        for (int[] sample : samples) {
+            assertThat(ids(friendStorage.getUserFriends(sample[0])))
+                    .isEqualTo(sorted(ids(userFriendsSql(sample[0]))));
+            assertThat(ids(friendStorage.getCommonsFriends(sample[0], sample[1])))
+                    .isEqualTo(sorted(ids(commonFriendsSql(sample[0], sample[1]))));
+        }
+    }
+
+    private void insertUsers(List<Object[]> users) {
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (USER_ID, USER_EMAIL, USER_LOGIN, USER_NAME, USER_BIRTHDAY) " +
+                "VALUES (?, ?, ?, ?, ?)", users);
+    }
+
+    /* Прежняя реализация: две проверки регистрации и соединение */
+    private List<User> userFriendsSql(int userId) {
+        jdbcTemplate.query(IS_REGISTERED_SQL, RowMappers.EXISTS, userId);
+        return jdbcTemplate.query(USER_FRIENDS_SQL, RowMappers.USER, userId);
+    }
+
+    private List<User> commonFriendsSql(int userId, int otherId) {
+        jdbcTemplate.query(IS_REGISTERED_SQL, RowMappers.EXISTS, userId);
+        jdbcTemplate.query(IS_REGISTERED_SQL, RowMappers.EXISTS, otherId);
+        return jdbcTemplate.query(COMMON_FRIENDS_SQL, RowMappers.USER, userId, otherId);
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static List<Integer> sorted(List<Integer> ids) {
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+
+    private static long measure(int[][] samples, Consumer<int[]> action) {
+        long start = System.nanoTime();
+        for (int[] sample : samples) {
+            action.accept(sample);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.UserService;
+import ru.yandex.practicum.javafilmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class FriendSuggestionsTest {
+    private static final int USERS = 20_000;
+    private static final int HUBS = 1_000;
+    private static final int SUPER_NODE_FRIENDS = 5_000;
+    private static final int SMALL_USERS = 1_000;
+    private static final int SMALL_HUBS = 100;
+    private static final int SMALL_SUPER_NODE_FRIENDS = 500;
+    private static final int FRIENDS_PER_USER = 30;
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int REQUESTS = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserService userService;
+    private final FriendGraph friendGraph;
+
+    @Test
+    @DisplayName("Возможные знакомые упорядочены по числу общих друзей, без самого пользователя и его друзей")
+    void testSuggestionsRankedByMutualFriends() {
+        insertUsers(9);
+        insertFriends(new int[][]{{1, 2}, {1, 3}, {1, 4}, {2, 3}, {5, 2}, {5, 3}, {5, 4}, {6, 2},
+                {7, 3}, {7, 4}, {8, 2}, {4, 1}});
+        friendGraph.reload();
+
+        assertThat(ids(userService.getFriendSuggestions(1, 10))).containsExactly(5, 7, 6, 8);
+        assertThat(ids(userService.getFriendSuggestions(1, 2))).containsExactly(5, 7);
+        /* Друзей нет — некого предложить */
+        assertThat(userService.getFriendSuggestions(9, 10)).isEmpty();
+
+        userService.addFriend(1, 5);
+        assertThat(ids(userService.getFriendSuggestions(1, 10))).containsExactly(7, 6, 8);
+        userService.deleteFriend(1, 5);
+        userService.deleteUser(7);
+        assertThat(ids(userService.getFriendSuggestions(1, 10))).containsExactly(5, 6, 8);
+
+        assertThrows(UnregisteredDataException.class, () -> userService.getFriendSuggestions(999, 10));
+    }
+
+    @Test
+    @DisplayName("Возможные знакомые пользователя с сотнями друзей среди популярных пользователей")
+    void testSuggestionsForSuperNode() {
+        createSuperNodeGraph(SMALL_USERS, SMALL_HUBS, SMALL_SUPER_NODE_FRIENDS);
+        assertSuperNodeSuggestions(userService.getFriendSuggestions(1, 10), SMALL_USERS, SMALL_SUPER_NODE_FRIENDS);
+    }
+
+    @Tag("benchmark")
+    @Test
+    @DisplayName("Возможные знакомые пользователя с тысячами друзей среди популярных пользователей за миллисекунды")
+    void testSuggestionsForSuperNodeTiming() {
+        createSuperNodeGraph(USERS, HUBS, SUPER_NODE_FRIENDS);
+        for (int i = 0; i < REQUESTS; i++) {
+            assertThat(userService.getFriendSuggestions(1, 10)).hasSize(10);
+        }
+        long start = System.nanoTime();
+        List<User> suggestions = List.of();
+        for (int i = 0; i < REQUESTS; i++) {
+            suggestions = userService.getFriendSuggestions(1, 10);
+        }
+        long averageMicros = (System.nanoTime() - start) / REQUESTS / 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            friendGraph.suggestFriends(1, 10);
+        }
+        long graphMicros = (System.nanoTime() - start) / REQUESTS / 1000;
+        log.info("Возможные знакомые пользователя с {} друзьями среди {} пользователей: {} мкс на запрос, " +
+                "из них обход графа {} мкс", SUPER_NODE_FRIENDS, USERS, averageMicros, graphMicros);
+
+        assertSuperNodeSuggestions(suggestions, USERS, SUPER_NODE_FRIENDS);
+        assertThat(averageMicros).isLessThan(20_000);
+    }
+
+    /* Пользователь 1 дружит с сотнями или тысячами пользователей, рядовые пользователи добавляют в друзья
+     * популярных, а последний пользователь — всех популярных, поэтому у него с первым больше всего общих друзей */
+    private void createSuperNodeGraph(int userCount, int hubCount, int superNodeFriends) {
+        insertUsers(userCount);
+        Random random = new Random(11);
+        List<Object[]> edges = new ArrayList<>(CHUNK_SIZE);
+        for (int friendId = 2; friendId <= superNodeFriends + 1; friendId++) {
+            edges.add(new Object[]{1, friendId});
+        }
+        for (int hubId = 2; hubId <= hubCount + 1; hubId++) {
+            edges.add(new Object[]{userCount, hubId});
+        }
+        for (int userId = superNodeFriends + 2; userId < userCount; userId++) {
+            for (int hubId : random.ints(2, hubCount + 2).distinct().limit(FRIENDS_PER_USER).toArray()) {
+                edges.add(new Object[]{userId, hubId});
+            }
+            if (edges.size() >= CHUNK_SIZE) {
+                batchInsertFriends(edges);
+                edges.clear();
+            }
+        }
+        batchInsertFriends(edges);
+        friendGraph.reload();
+    }
+
+    private static void assertSuperNodeSuggestions(List<User> suggestions, int userCount, int superNodeFriends) {
+        assertThat(suggestions).hasSize(10);
+        assertThat(suggestions.get(0).getId()).isEqualTo(userCount);
+        assertThat(ids(suggestions)).doesNotContain(1).allMatch(id -> id > superNodeFriends + 1);
+    }
+
+    private void insertUsers(int count) {
+        List<Object[]> users = new ArrayList<>(CHUNK_SIZE);
+        for (int id = 1; id <= count; id++) {
+            users.add(new Object[]{id, "user" + id + "@yandex.ru", "user" + id, "User " + id,
+                    Date.valueOf(LocalDate.of(1990, 1, 1))});
+            if (users.size() == CHUNK_SIZE || id == count) {
+                jdbcTemplate.batchUpdate("INSERT INTO USERS (USER_ID, USER_EMAIL, USER_LOGIN, USER_NAME, " +
+                        "USER_BIRTHDAY) VALUES (?, ?, ?, ?, ?)", users);
+                users.clear();
+            }
+        }
+    }
+
+    private void insertFriends(int[][] pairs) {
+        List<Object[]> edges = new ArrayList<>();
+        for (int[] pair : pairs) {
+            edges.add(new Object[]{pair[0], pair[1]});
+        }
+        batchInsertFriends(edges);
+    }
+
+    private void batchInsertFriends(List<Object[]> edges) {
+        jdbcTemplate.batchUpdate("INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (?, ?)", edges);
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.ConsoleAppender;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+class LogFormatTest {
+
+    @Test
+    @DisplayName("Кавычки, обратная косая черта и переводы строк в сообщении экранируются внутри msg")
+    void testMessageIsEscaped() {
+        Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        AsyncAppender async = (AsyncAppender) root.getAppender("ASYNC_CONSOLE");
+        ConsoleAppender<ILoggingEvent> console = (ConsoleAppender<ILoggingEvent>) async.getAppender("CONSOLE");
+        PatternLayoutEncoder encoder = (PatternLayoutEncoder) console.getEncoder();
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), root, Level.INFO,
+                "Фильм {} с описанием {}", null, new Object[]{"\"Чужой\"", "C:\\films\nвторая строка"});
+
+        String line = new String(encoder.encode(event), StandardCharsets.UTF_8);
+
+        assertThat(line).endsWith("msg=\"Фильм \\\"Чужой\\\" с описанием C:\\\\films\\nвторая строка\"" +
+                System.lineSeparator());
+    }
+}
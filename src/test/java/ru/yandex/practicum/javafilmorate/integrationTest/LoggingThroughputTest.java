@@ -0,0 +1,128 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/* Сравнение GET /films при прежнем режиме (синхронная запись, журналирование каждого вызова)
+ * и при асинхронной записи с одной итоговой строкой на запрос */
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext
+class LoggingThroughputTest {
+    private static final String APP_LOGGER = "ru.yandex.practicum.javafilmorate";
+    private static final int FILMS_COUNT = 50;
+    private static final int REQUESTS = 50;
+    private static final int BENCHMARK_FILMS_COUNT = 300;
+    private static final int BENCHMARK_REQUESTS = 300;
+
+    private final MockMvc mockMvc;
+    private final FilmStorage filmStorage;
+
+    @Test
+    @DisplayName("Асинхронный журнал с итогом запроса пишет одну строку на GET /films")
+    void testFindAllLoggingOverhead() throws Exception {
+        compareLogging(FILMS_COUNT, REQUESTS);
+    }
+
+    @Tag("benchmark")
+    @Test
+    @DisplayName("Пропускная способность GET /films при синхронном и асинхронном журнале")
+    void testFindAllLoggingThroughput() throws Exception {
+        compareLogging(BENCHMARK_FILMS_COUNT, BENCHMARK_REQUESTS);
+    }
+
+    private void compareLogging(int filmsCount, int requests) throws Exception {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < filmsCount; i++) {
+            films.add(new Film(null, "Film " + i, "Description " + i, LocalDate.of(2000, 1, 1), 100,
+                    new Mpa(i % 5 + 1, null)));
+        }
+        filmStorage.addFilms(films);
+
+        Logger root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        Logger appLogger = (Logger) LoggerFactory.getLogger(APP_LOGGER);
+        AsyncAppender async = (AsyncAppender) root.getAppender("ASYNC_CONSOLE");
+        Appender<ILoggingEvent> console = async.getAppender("CONSOLE");
+        AtomicLong events = new AtomicLong();
+        AppenderBase<ILoggingEvent> counter = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                events.incrementAndGet();
+            }
+        };
+        counter.start();
+        appLogger.addAppender(counter);
+        Level configuredLevel = appLogger.getLevel();
+        try {
+            runRequests(requests);
+
+            /* Прежний режим: каждый вызов контроллера, сервиса и хранилища пишется синхронно */
+            root.detachAppender(async);
+            root.addAppender(console);
+            appLogger.setLevel(Level.DEBUG);
+            events.set(0);
+            double verboseRate = runRequests(requests);
+            long verboseEvents = events.get();
+
+            root.detachAppender(console);
+            root.addAppender(async);
+            appLogger.setLevel(configuredLevel);
+            events.set(0);
+            double asyncRate = runRequests(requests);
+            long asyncEvents = events.get();
+
+            log.info("GET /films по {} фильмам: синхронно с DEBUG {} запросов в секунду и {} строк на запрос, " +
+                            "асинхронно с итогом запроса {} запросов в секунду и {} строк на запрос", filmsCount,
+                    Math.round(verboseRate), verboseEvents / requests, Math.round(asyncRate), asyncEvents / requests);
+            assertThat(asyncEvents).isEqualTo(requests);
+            assertThat(verboseEvents).isGreaterThan(asyncEvents * 3);
+        } finally {
+            appLogger.detachAppender(counter);
+            appLogger.setLevel(configuredLevel);
+            if (root.getAppender("ASYNC_CONSOLE") == null) {
+                root.detachAppender(console);
+                root.addAppender(async);
+            }
+        }
+    }
+
+    private double runRequests(int count) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            mockMvc.perform(get("/films")).andExpect(status().isOk());
+        }
+        return count * 1e9 / (System.nanoTime() - start);
+    }
+}
@@ -7,8 +7,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.MpaDbStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
 
 import java.util.ArrayList;
 
@@ -17,6 +19,7 @@ import java.util.ArrayList;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 class MpaDbStorageTest {
     private final MpaDbStorage mpaDbStorage;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     @DisplayName("Проверка метода findById для Mpa")
@@ -37,4 +40,21 @@ class MpaDbStorageTest {
     void testFindAllMpa() {
         Assertions.assertEquals(5, mpaDbStorage.findAll().size(), "Количество данных не совпадает");
     }
+
+    @Test
+    @DisplayName("Промах по Mpa не перечитывает справочник повторно до истечения интервала")
+    void testMpaMissReloadIsRateLimited() {
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.reload();
+        Assertions.assertTrue(referenceDataCache.getMpa(6).isEmpty(), "Найден несуществующий рейтинг");
+        jdbcTemplate.update("INSERT INTO MPA (MPA_ID, MPA_NAME) VALUES (6, 'X')");
+        try {
+            Assertions.assertTrue(referenceDataCache.getMpa(6).isEmpty(), "Справочник перечитан на каждом промахе");
+            referenceDataCache.reload();
+            Assertions.assertEquals("X", referenceDataCache.getMpa(6).orElseThrow().getName(),
+                    "Явная перезагрузка не применила изменения");
+        } finally {
+            jdbcTemplate.update("DELETE FROM MPA WHERE MPA_ID = 6");
+        }
+    }
 }
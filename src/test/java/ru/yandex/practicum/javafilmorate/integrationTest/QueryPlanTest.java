@@ -0,0 +1,187 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.*;
+import ru.yandex.practicum.javafilmorate.storage.dao.*;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+/* Все запросы хранилищ перехватываются вместе с параметрами и проверяются через EXPLAIN */
+@SpringBootTest(classes = {JavaFilmorateApplication.class, QueryPlanTest.StatementRecorderConfig.class})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class QueryPlanTest {
+    private static final Map<String, List<Object>> STATEMENTS = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static volatile boolean recording;
+    /* Полный просмотр допустим для выборок без условий и для поиска по подстроке */
+    private static final Pattern FULL_SCAN_ALLOWED = Pattern.compile("(?is)^(?!.*\\bWHERE\\b).*|.*\\bLIKE\\b.*");
+    /* Индекс без условия в плане означает обход всего индекса, например только ради сортировки */
+    private static final Pattern UNBOUNDED_INDEX_SCAN = Pattern.compile("/\\* PUBLIC\\.\\w+ \\*/");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FriendStorage friendStorage;
+    private final MarkStorage markStorage;
+    private final ReviewStorage reviewStorage;
+    private final EventStorage eventStorage;
+    private final DirectorStorage directorStorage;
+    private final GenreStorage genreStorage;
+
+    @Test
+    @DisplayName("Запросы хранилищ с условиями выполняются по индексам")
+    void testStorageQueriesUseIndexes() {
+        Director director = directorStorage.addDirector(new Director(null, "Director"));
+        User first = userStorage.addUser(new User(null, "first@yandex.ru", "first", "First",
+                LocalDate.of(1990, 1, 1), null));
+        User second = userStorage.addUser(new User(null, "second@yandex.ru", "second", "Second",
+                LocalDate.of(1990, 1, 1), null));
+        User third = userStorage.addUser(new User(null, "third@yandex.ru", "third", "Third",
+                LocalDate.of(1990, 1, 1), null));
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Film film = new Film(null, "Film " + i, "Description", LocalDate.of(2000 + i, 1, 1), 100,
+                    new Mpa(i % 5 + 1, null));
+            film.setGenres(List.of(new Genre(i % 6 + 1, null)));
+            film.getDirectors().add(director);
+            films.add(filmStorage.addFilm(film));
+        }
+        Film film = films.get(0);
+
+        recording = true;
+        filmStorage.findAll(0, 10);
+        filmStorage.findById(film.getId());
+        filmStorage.findByIds(List.of(film.getId(), films.get(1).getId()));
+        filmStorage.updateFilm(film);
+        filmStorage.findDirectorFilmsByYearOrLikes(director.getId(), "year");
+        filmStorage.findDirectorFilmsByYearOrLikes(director.getId(), "likes");
+        filmStorage.findPopularByIds(List.of(film.getId()));
+        userStorage.findById(first.getId());
+        userStorage.findAll(0, 10);
+        userStorage.updateUser(first);
+        friendStorage.addFriend(first.getId(), second.getId());
+        friendStorage.addFriend(third.getId(), second.getId());
+        friendStorage.getUserFriends(first.getId());
+        friendStorage.getCommonsFriends(first.getId(), third.getId());
+        friendStorage.getFriendSuggestions(third.getId(), 10);
+        friendStorage.getFriendIds(first.getId());
+        friendStorage.getFollowerIds(List.of(second.getId()));
+        friendStorage.deleteFriend(third.getId(), second.getId());
+        markStorage.addMark(new Mark(film.getId(), first.getId(), 8));
+        markStorage.addMark(new Mark(film.getId(), second.getId(), 6));
+        markStorage.mergeMarks(List.of(new Mark(film.getId(), first.getId(), 9)));
+        filmStorage.getRegisteredFilmIds(List.of(film.getId()));
+        userStorage.getRegisteredUserIds(List.of(first.getId()));
+        markStorage.getMarks(film.getId());
+        markStorage.getNeighbourhoodMatrix(first.getId());
+        markStorage.deleteMark(film.getId(), second.getId());
+        Review review = reviewStorage.add(new Review(0, "Review", true, first.getId(), film.getId(), 0));
+        reviewStorage.update(review);
+        reviewStorage.addVote(review.getReviewId(), second.getId(), 1);
+        reviewStorage.addVote(review.getReviewId(), second.getId(), -1);
+        reviewStorage.addVote(review.getReviewId(), third.getId(), 1);
+        reviewStorage.addVote(review.getReviewId(), third.getId(), 1);
+        reviewStorage.removeVote(review.getReviewId(), second.getId(), -1);
+        reviewStorage.addUseful(Map.of(review.getReviewId(), 1L));
+        reviewStorage.findAllReviews(Integer.MAX_VALUE, 0, 10);
+        reviewStorage.findAllReviews(review.getUseful(), review.getReviewId(), 10);
+        reviewStorage.findReviewsByFilmID(film.getId(), Integer.MAX_VALUE, 0, 10);
+        reviewStorage.findReviewsByFilmID(film.getId(), review.getUseful(), review.getReviewId(), 10);
+        reviewStorage.findReviewByID(review.getReviewId());
+        reviewStorage.removeReview(review.getReviewId());
+        eventStorage.add(new Event(EventType.LIKE, OperationType.ADD, film.getId(), first.getId()));
+        eventStorage.getUserEvents(first.getId());
+        eventStorage.getUserEvents(first.getId(), 0, 10);
+        eventStorage.getFriendsEvents(first.getId(), Integer.MAX_VALUE, 10);
+        eventStorage.getUsersEvents(List.of(first.getId(), second.getId()), Integer.MAX_VALUE, 10);
+        directorStorage.findDirectorsByFilmId(film.getId());
+        directorStorage.updateDirector(director);
+        genreStorage.reloadGenres(film);
+        filmStorage.deleteFilm(films.get(3).getId());
+        userStorage.deleteUser(third.getId());
+        recording = false;
+
+        Map<String, List<Object>> statements;
+        synchronized (STATEMENTS) {
+            statements = new LinkedHashMap<>(STATEMENTS);
+        }
+        assertThat(statements).isNotEmpty();
+        Map<String, String> scans = new LinkedHashMap<>();
+        statements.forEach((sql, params) -> {
+            if (!sql.matches("(?is)\\s*(SELECT|UPDATE|DELETE)\\b.*") || FULL_SCAN_ALLOWED.matcher(sql).matches()) {
+                return;
+            }
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, params.toArray());
+            if (plan.contains(".tableScan") || UNBOUNDED_INDEX_SCAN.matcher(plan).find()) {
+                scans.put(sql, plan);
+            }
+        });
+        assertThat(scans).as("Запросы с полным просмотром таблицы").isEmpty();
+    }
+
+    @TestConfiguration
+    static class StatementRecorderConfig {
+        @Bean
+        static BeanPostProcessor statementRecordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource) {
+                        return recordingProxy(DataSource.class, bean, null, null);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        /* Для подготовленного выражения запоминаются его текст и параметры последнего выполнения */
+        private static <T> T recordingProxy(Class<T> type, Object target, String sql, Map<Integer, Object> params) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (params != null && name.startsWith("set") && args != null && args.length >= 2
+                                && args[0] instanceof Integer) {
+                            params.put((Integer) args[0], args[1]);
+                        } else if (params != null && recording && (name.startsWith("execute")
+                                || name.equals("addBatch"))) {
+                            STATEMENTS.putIfAbsent(sql, new ArrayList<>(new TreeMap<>(params).values()));
+                        }
+                        try {
+                            Object result = method.invoke(target, args);
+                            if (result instanceof Connection) {
+                                return recordingProxy(Connection.class, result, null, null);
+                            }
+                            if (result instanceof PreparedStatement && name.equals("prepareStatement")) {
+                                return recordingProxy(PreparedStatement.class, result, (String) args[0],
+                                        new HashMap<>());
+                            }
+                            return result;
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }));
+        }
+    }
+}
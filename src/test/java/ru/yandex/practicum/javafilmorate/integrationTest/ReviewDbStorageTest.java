@@ -7,17 +7,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.javafilmorate.model.Film;
 import ru.yandex.practicum.javafilmorate.model.Mpa;
 import ru.yandex.practicum.javafilmorate.model.Review;
 import ru.yandex.practicum.javafilmorate.model.User;
-import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.ReviewStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.*;
+import ru.yandex.practicum.javafilmorate.storage.index.ReferenceDataCache;
 import ru.yandex.practicum.javafilmorate.utils.UnregisteredDataException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,19 +29,22 @@ import static org.junit.jupiter.api.Assertions.*;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class ReviewDbStorageTest {
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private ReviewStorage reviewStorage;
     private int film1Id, film2Id;
     private int user1Id, user2Id, user3Id;
 
     @BeforeEach
     void beforeEach() {
-        reviewStorage = new ReviewDbStorage(jdbcTemplate);
-        GenreDbStorage genreStorage = new GenreDbStorage(jdbcTemplate);
-        MpaDbStorage mpaDbStorage = new MpaDbStorage(jdbcTemplate);
-        DirectorDbStorage directorDbStorage = new DirectorDbStorage(jdbcTemplate);
-        MarkStorage likeStorage = new MarkDbStorage(jdbcTemplate);
-        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, mpaDbStorage, genreStorage, directorDbStorage, likeStorage);
-        UserDbStorage userDbStorage = new UserDbStorage(jdbcTemplate);
+        reviewStorage = new ReviewDbStorage(jdbcTemplate, transactionTemplate);
+        ReferenceDataCache referenceDataCache = new ReferenceDataCache(jdbcTemplate);
+        referenceDataCache.reload();
+        GenreDbStorage genreStorage = new GenreDbStorage(jdbcTemplate, referenceDataCache);
+        MpaDbStorage mpaDbStorage = new MpaDbStorage(referenceDataCache);
+        DirectorDbStorage directorDbStorage = new DirectorDbStorage(jdbcTemplate, referenceDataCache);
+        FilmAssembler filmAssembler = new FilmAssembler(jdbcTemplate, referenceDataCache);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, transactionTemplate, mpaDbStorage, genreStorage, directorDbStorage, filmAssembler);
+        UserDbStorage userDbStorage = new UserDbStorage(jdbcTemplate, transactionTemplate);
         Film film1 = new Film(null, "Film1", "Description1", LocalDate.parse("1970-01-01"),
                 140, new Mpa(1, "G"));
         filmStorage.addFilm(film1);
@@ -75,14 +81,14 @@ public class ReviewDbStorageTest {
         int review2Id = reviewStorage.add(review2).getReviewId();
         Review review3 = new Review(0, "ReviewUser1Film2", false, user1Id, film2Id, 0);
         int review3Id = reviewStorage.add(review3).getReviewId();
-        List<Review> reviewList = reviewStorage.findAllReviews(10);
+        List<Review> reviewList = reviewStorage.findAllReviews(Integer.MAX_VALUE, 0, 10);
         assertThat(reviewList.size()).isEqualTo(3);
-        reviewList = reviewStorage.findReviewsByFilmID(film1Id, 10);
+        reviewList = reviewStorage.findReviewsByFilmID(film1Id, Integer.MAX_VALUE, 0, 10);
         assertThat(reviewList.size()).isEqualTo(2);
-        reviewList = reviewStorage.findReviewsByFilmID(film2Id, 10);
+        reviewList = reviewStorage.findReviewsByFilmID(film2Id, Integer.MAX_VALUE, 0, 10);
         assertThat(reviewList.size()).isEqualTo(1);
         /* Получаем отзывы с ограничением количества */
-        reviewList = reviewStorage.findAllReviews(2);
+        reviewList = reviewStorage.findAllReviews(Integer.MAX_VALUE, 0, 2);
         assertThat(reviewList.size()).isEqualTo(2);
         /* Меняем контекст и оценку фильма в отзыве. Данные о пользователе, фильме и полезности могут быть любые - ни на что не влияют */
         Review updatedReview = new Review(review1Id, "updatedReviewContext", true, 9999, 8888, 123);
@@ -105,4 +111,55 @@ public class ReviewDbStorageTest {
                 UnregisteredDataException.class, () -> reviewStorage.add(reviewFromNotExistFilm));
         assertEquals("Определен несуществующий пользователь или фильм", exceptionNotFilm.getMessage());
     }
-}
\ No newline at end of file
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    public void testKeysetPagingByUseful() {
+        /* Отзывы с одинаковой полезностью упорядочены по id, страницы продолжаются с последнего отзыва */
+        int[] useful = {3, -1, 3, 0, 5, 0, 3};
+        UserDbStorage userDbStorage = new UserDbStorage(jdbcTemplate, transactionTemplate);
+        List<Integer> voterIds = new ArrayList<>(List.of(user1Id, user2Id, user3Id));
+        for (int i = 4; i <= 5; i++) {
+            voterIds.add(userDbStorage.addUser(new User(null, "email" + i + "@yandex.ru", "Login" + i, "Name" + i,
+                    LocalDate.parse("1990-01-01"), null)).getId());
+        }
+        for (int i = 0; i < useful.length; i++) {
+            int reviewId = reviewStorage.add(new Review(0, "Review" + i, true, user1Id,
+                    i % 2 == 0 ? film1Id : film2Id, 0)).getReviewId();
+            long delta = 0;
+            for (int voter = 0; voter < Math.abs(useful[i]); voter++) {
+                delta += reviewStorage.addVote(reviewId, voterIds.get(voter), Integer.signum(useful[i]));
+            }
+            reviewStorage.addUseful(Map.of(reviewId, delta));
+        }
+        List<Review> expected = reviewStorage.findAllReviews(Integer.MAX_VALUE, 0, 100);
+        assertThat(expected).extracting(Review::getUseful).containsExactly(5, 3, 3, 3, 0, 0, -1);
+
+        List<Review> pages = new ArrayList<>();
+        List<Review> page = reviewStorage.findAllReviews(Integer.MAX_VALUE, 0, 2);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            Review last = page.get(page.size() - 1);
+            page = reviewStorage.findAllReviews(last.getUseful(), last.getReviewId(), 2);
+        }
+        assertThat(pages).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+
+        /* То же для отзывов одного фильма */
+        List<Review> filmReviews = reviewStorage.findReviewsByFilmID(film1Id, Integer.MAX_VALUE, 0, 2);
+        assertThat(filmReviews).extracting(Review::getUseful).containsExactly(5, 3);
+        Review last = filmReviews.get(1);
+        filmReviews = reviewStorage.findReviewsByFilmID(film1Id, last.getUseful(), last.getReviewId(), 2);
+        assertThat(filmReviews).extracting(Review::getUseful).containsExactly(3, 3);
+        last = filmReviews.get(1);
+        assertThat(reviewStorage.findReviewsByFilmID(film1Id, last.getUseful(), last.getReviewId(), 2)).isEmpty();
+    }
+
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    @Test
+    public void testAddIgnoresClientUseful() {
+        /* Полезность задаётся только голосами, значение из запроса не сохраняется */
+        Review review = reviewStorage.add(new Review(0, "Review", true, user1Id, film1Id, 9999));
+        assertThat(review.getUseful()).isZero();
+        assertThat(reviewStorage.findReviewByID(review.getReviewId()).getUseful()).isZero();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.model.Review;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.service.ReviewService;
+import ru.yandex.practicum.javafilmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/* Фоновая запись полезности отключена большим интервалом, чтобы было видно, что чтения ничего не пишут */
+@SpringBootTest(classes = JavaFilmorateApplication.class,
+        properties = "filmorate.reviews.useful-flush-interval-ms=3600000")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext
+class ReviewUsefulReadTest {
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final ReviewService reviewService;
+
+    @Test
+    @DisplayName("Отзыв по id, после изменения и в списке показывает незаписанные голоса без записи в базу")
+    void testReadsOverlayPendingUseful() {
+        int filmId = filmService.addFilm(new Film(null, "Film", "Description", LocalDate.of(2000, 1, 1), 100,
+                new Mpa(1, null))).getId();
+        int[] userIds = new int[3];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = userService.addUser(new User(null, "user" + i + "@yandex.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1), null)).getId();
+        }
+        int reviewId = reviewService.add(new Review(0, "Review", true, userIds[0], filmId, 0)).getReviewId();
+        reviewService.addLike(reviewId, userIds[1]);
+        reviewService.addLike(reviewId, userIds[2]);
+        reviewService.addDislike(reviewId, userIds[2]);
+
+        assertThat(reviewService.findReviewByID(reviewId).getUseful()).isZero();
+        reviewService.removeDislike(reviewId, userIds[2]);
+        assertThat(reviewService.findReviewByID(reviewId).getUseful()).isEqualTo(1);
+        assertThat(reviewService.update(new Review(reviewId, "Updated", false, userIds[0], filmId, 0))
+                .getUseful()).isEqualTo(1);
+        assertThat(storedUseful(reviewId)).isZero();
+
+        /* Список тоже не пишет накопленное и упорядочен с учётом незаписанных голосов */
+        int secondReviewId = reviewService.add(new Review(0, "Second", true, userIds[0], filmId, 0)).getReviewId();
+        reviewService.addLike(secondReviewId, userIds[1]);
+        reviewService.addLike(secondReviewId, userIds[2]);
+        assertThat(reviewService.findReviewsByFilmID(filmId, 10)).extracting(Review::getReviewId)
+                .containsExactly(secondReviewId, reviewId);
+        assertThat(reviewService.findReviewsByFilmID(filmId, 10)).extracting(Review::getUseful)
+                .containsExactly(2, 1);
+        assertThat(storedUseful(reviewId)).isZero();
+        assertThat(storedUseful(secondReviewId)).isZero();
+    }
+
+    private int storedUseful(int reviewId) {
+        return jdbcTemplate.queryForObject("SELECT USEFUL FROM REVIEWS WHERE ID = ?", Integer.class, reviewId);
+    }
+}
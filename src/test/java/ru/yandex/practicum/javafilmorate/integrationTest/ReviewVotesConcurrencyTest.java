@@ -0,0 +1,161 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.model.Review;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.service.ReviewService;
+import ru.yandex.practicum.javafilmorate.service.ReviewUsefulCounter;
+import ru.yandex.practicum.javafilmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+/* Запись накопленной полезности каждую миллисекунду, чтобы она чаще пересекалась с голосованием */
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class,
+        properties = "filmorate.reviews.useful-flush-interval-ms=1")
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class ReviewVotesConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int USERS = 200;
+    private static final int VOTES_PER_USER = 40;
+    private static final int COUNTER_ITERATIONS = 100_000;
+    private static final int COUNTER_REVIEWS = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final ReviewService reviewService;
+    private final ReviewUsefulCounter usefulCounter;
+    private final List<Integer> userIds = new ArrayList<>();
+    private int filmId;
+    private int reviewId;
+
+    @BeforeEach
+    void createReview() {
+        filmId = filmService.addFilm(new Film(null, "Film", "Description", LocalDate.of(2000, 1, 1), 100,
+                new Mpa(1, null))).getId();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(userService.addUser(new User(null, "user" + i + "@yandex.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1), null)).getId());
+        }
+        reviewId = reviewService.add(new Review(0, "Review", true, userIds.get(0), filmId, 0)).getReviewId();
+    }
+
+    @Test
+    @DisplayName("Одновременные голоса за один отзыв не теряются и учитываются по одному от пользователя")
+    void testConcurrentVotesAreNotLost() throws Exception {
+        List<Runnable> likes = new ArrayList<>();
+        for (int userId : userIds) {
+            likes.add(() -> reviewService.addLike(reviewId, userId));
+            likes.add(() -> reviewService.addLike(reviewId, userId));
+        }
+        run(likes);
+        assertThat(reviewService.findReviewByID(reviewId).getUseful()).isEqualTo(USERS);
+
+        /* Голоса одного пользователя выполняются в разных потоках вперемешку */
+        Random random = new Random(42);
+        List<Runnable> votes = new ArrayList<>();
+        for (int userId : userIds) {
+            for (int i = 0; i < VOTES_PER_USER; i++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        votes.add(() -> reviewService.addLike(reviewId, userId));
+                        break;
+                    case 1:
+                        votes.add(() -> reviewService.addDislike(reviewId, userId));
+                        break;
+                    case 2:
+                        votes.add(() -> reviewService.removeLike(reviewId, userId));
+                        break;
+                    default:
+                        votes.add(() -> reviewService.removeDislike(reviewId, userId));
+                }
+            }
+        }
+        Collections.shuffle(votes, random);
+        long start = System.nanoTime();
+        run(votes);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        Integer ledgerSum = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(VOTE), 0) FROM REVIEW_VOTES " +
+                "WHERE REVIEW_ID = ?", Integer.class, reviewId);
+        assertThat(reviewService.findReviewByID(reviewId).getUseful()).isEqualTo(ledgerSum);
+        log.info("{} голосов {} пользователей за один отзыв в {} потоков: {} мс, итоговая полезность {}",
+                votes.size(), USERS, THREADS, elapsedMs, ledgerSum);
+    }
+
+    @Test
+    @DisplayName("Счётчик полезности не теряет изменения при параллельной записи пакетов")
+    void testCounterKeepsDeltasDuringFlushes() throws Exception {
+        List<Integer> reviewIds = new ArrayList<>();
+        for (int i = 0; i < COUNTER_REVIEWS; i++) {
+            reviewIds.add(reviewService.add(new Review(0, "Review " + i, true, userIds.get(i),
+                    filmId, 0)).getReviewId());
+        }
+        /* Пары +1 и -1 по многим отзывам почти всегда обнуляют счётчик к моменту записи, и он удаляется,
+         * пока другие потоки прибавляют к нему. Один поток непрерывно записывает накопленное */
+        CountDownLatch finished = new CountDownLatch(THREADS - 1);
+        List<Runnable> writers = new ArrayList<>();
+        writers.add(() -> {
+            while (finished.getCount() > 0) {
+                usefulCounter.flush();
+            }
+        });
+        for (int t = 1; t < THREADS; t++) {
+            int shift = t;
+            writers.add(() -> {
+                for (int i = 0; i < COUNTER_ITERATIONS; i++) {
+                    int id = reviewIds.get((i + shift) % COUNTER_REVIEWS);
+                    usefulCounter.add(id, 1);
+                    usefulCounter.add(id, -1);
+                    if (i % 10 == 0) {
+                        usefulCounter.add(id, 1);
+                    }
+                }
+                finished.countDown();
+            });
+        }
+        run(writers);
+        usefulCounter.flush();
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(USEFUL) FROM REVIEWS", Integer.class))
+                .isEqualTo((THREADS - 1) * COUNTER_ITERATIONS / 10);
+    }
+
+    private void run(List<Runnable> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.implementation.RowMappers;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.annotation.DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD;
+
+@Slf4j
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = BEFORE_EACH_TEST_METHOD)
+class RowMappingAllocationTest {
+    private static final int FILMS_COUNT = 2000;
+    private static final int ROUNDS = 20;
+    private static final String FIND_ALL = "SELECT * FROM FILMS";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmStorage filmStorage;
+
+    @Test
+    @DisplayName("Маппинг через RowMapper выделяет на строку меньше памяти, чем копирование в SqlRowSet")
+    void testRowMapperAllocatesLessThanRowSet() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            films.add(new Film(null, "Film " + i, "Description " + i, LocalDate.of(2000, 1, 1), 100,
+                    new Mpa(i % 5 + 1, null)));
+        }
+        filmStorage.addFilms(films);
+
+        Supplier<List<Film>> rowSet = () -> {
+            List<Film> result = new ArrayList<>();
+            SqlRowSet rs = jdbcTemplate.queryForRowSet(FIND_ALL);
+            while (rs.next()) {
+                result.add(new Film(rs.getInt("FILM_ID"), rs.getString("FILM_NAME"),
+                        rs.getString("FILM_DESCRIPTION"), rs.getDate("FILM_RELEASE_DATE").toLocalDate(),
+                        rs.getInt("FILM_DURATION"), new Mpa(rs.getInt("MPA_ID"), null)));
+            }
+            return result;
+        };
+        Supplier<List<Film>> rowMapper = () -> jdbcTemplate.query(FIND_ALL, RowMappers.FILM);
+
+        /* Прогрев, чтобы в замер не попали загрузка классов и компиляция */
+        bytesPerRow(rowSet);
+        bytesPerRow(rowMapper);
+        long rowSetBytes = bytesPerRow(rowSet);
+        long rowMapperBytes = bytesPerRow(rowMapper);
+        log.info("findAll по {} фильмам: SqlRowSet {} байт на строку, RowMapper {} байт на строку",
+                FILMS_COUNT, rowSetBytes, rowMapperBytes);
+
+        assertThat(rowMapperBytes).isLessThan(rowSetBytes);
+    }
+
+    private static long bytesPerRow(Supplier<List<Film>> query) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROUNDS; i++) {
+            assertThat(query.get()).hasSize(FILMS_COUNT);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / ((long) ROUNDS * FILMS_COUNT);
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.model.User;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.storage.dao.FilmStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.FriendStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.GenreStorage;
+import ru.yandex.practicum.javafilmorate.storage.dao.MpaStorage;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/* Два запуска приложения на одной файловой базе H2 во временном каталоге */
+@Slf4j
+class StartupMigrationTest {
+    private static final int FILMS_COUNT = 1_000;
+    private static final int BENCHMARK_FILMS_COUNT = 20_000;
+    private static final int CHUNK_SIZE = 1000;
+
+    @TempDir
+    Path databaseDir;
+
+    @Test
+    @DisplayName("Повторный запуск сохраняет данные и не применяет миграции заново")
+    void testRestartKeepsDataAndSkipsAppliedMigrations() {
+        restart(FILMS_COUNT);
+    }
+
+    @Tag("benchmark")
+    @Test
+    @DisplayName("Повторный запуск на базе с десятками тысяч фильмов не применяет миграции заново")
+    void testRestartWithManyFilms() {
+        restart(BENCHMARK_FILMS_COUNT);
+    }
+
+    private void restart(int filmsCount) {
+        String url = "jdbc:h2:file:" + databaseDir.resolve("filmorate") + ";QUERY_CACHE_SIZE=64";
+
+        long start = System.nanoTime();
+        List<String> appliedOnFirstStart;
+        try (ConfigurableApplicationContext context = startApplication(url)) {
+            long firstStartupMs = (System.nanoTime() - start) / 1_000_000;
+            Flyway flyway = context.getBean(Flyway.class);
+            appliedOnFirstStart = describe(flyway.info().applied());
+            assertThat(appliedOnFirstStart).hasSize(flyway.info().all().length);
+            assertThat(context.getBean(MpaStorage.class).findAll()).hasSize(5);
+
+            FilmStorage filmStorage = context.getBean(FilmStorage.class);
+            List<Film> films = new ArrayList<>(CHUNK_SIZE);
+            for (int i = 0; i < filmsCount; i++) {
+                films.add(new Film(null, "Film " + i, "Description " + i, LocalDate.of(1950 + i % 70, 1, 1),
+                        90 + i % 60, new Mpa(i % 5 + 1, null)));
+                if (films.size() == CHUNK_SIZE) {
+                    filmStorage.addFilms(films);
+                    films = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            log.info("Первый запуск на пустой базе с применением миграций: {} мс", firstStartupMs);
+        }
+
+        start = System.nanoTime();
+        try (ConfigurableApplicationContext context = startApplication(url)) {
+            long restartMs = (System.nanoTime() - start) / 1_000_000;
+            Flyway flyway = context.getBean(Flyway.class);
+            assertThat(describe(flyway.info().applied())).isEqualTo(appliedOnFirstStart);
+            assertThat(flyway.info().pending()).isEmpty();
+            assertThat(flyway.validateWithResult().validationSuccessful).isTrue();
+            assertThat(flyway.migrate().migrationsExecuted).isZero();
+            assertThat(context.getBean(FilmStorage.class).findAll()).hasSize(filmsCount);
+            log.info("Повторный запуск на базе с {} фильмами без миграций: {} мс", filmsCount, restartMs);
+        }
+    }
+
+    @Test
+    @DisplayName("База, созданная прежним schema.sql, дополняется миграциями и запускается")
+    void testLegacySchemaIsBaselinedAndCaughtUp() throws SQLException {
+        String url = "jdbc:h2:file:" + databaseDir.resolve("legacy") + ";QUERY_CACHE_SIZE=64";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "password");
+             Statement statement = connection.createStatement()) {
+            statement.execute("RUNSCRIPT FROM 'classpath:legacy/schema.sql'");
+            statement.execute("RUNSCRIPT FROM 'classpath:legacy/data.sql'");
+            statement.execute("INSERT INTO USERS (USER_EMAIL, USER_LOGIN, USER_BIRTHDAY) VALUES " +
+                    "('first@yandex.ru', 'first', '1990-01-01'), ('second@yandex.ru', 'second', '1990-01-01'), " +
+                    "('third@yandex.ru', 'third', '1990-01-01')");
+            statement.execute("INSERT INTO FILMS (FILM_NAME, FILM_DESCRIPTION, FILM_RELEASE_DATE, FILM_DURATION, " +
+                    "MPA_ID) VALUES ('First', 'Description', '2000-01-01', 100, 1), " +
+                    "('Second', 'Description', '2001-01-01', 100, 2)");
+            statement.execute("INSERT INTO MARKS (FILM_ID, USER_ID, RATING) VALUES (1, 1, 8), (1, 2, 6), (2, 1, 3)");
+            /* Прежняя схема допускала повторную заявку в друзья и отзыв без полезности */
+            statement.execute("INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (1, 2), (1, 2), (1, 3)");
+            statement.execute("INSERT INTO REVIEWS (CONTENT, IS_POSITIVE, FILM_ID, USER_ID) " +
+                    "VALUES ('Review', TRUE, 1, 2)");
+        }
+
+        try (ConfigurableApplicationContext context = startApplication(url)) {
+            Flyway flyway = context.getBean(Flyway.class);
+            MigrationInfo[] applied = flyway.info().applied();
+            assertThat(applied[0].getType()).isEqualTo(MigrationType.BASELINE);
+            assertThat(applied[0].getVersion().getVersion()).isEqualTo("2");
+            assertThat(flyway.info().pending()).isEmpty();
+            assertThat(flyway.info().current().getVersion())
+                    .isEqualTo(flyway.info().all()[flyway.info().all().length - 1].getVersion());
+
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertThat(jdbcTemplate.queryForList("SELECT MARK_COUNT || ':' || RATING_SUM FROM FILMS " +
+                    "ORDER BY FILM_ID", String.class)).containsExactly("2:14", "1:3");
+            assertThat(context.getBean(FilmService.class).getPopularFilms(10))
+                    .extracting(Film::getId).containsExactly(1, 2);
+            assertThat(context.getBean(FriendStorage.class).getUserFriends(1))
+                    .extracting(User::getId).containsExactly(2, 3);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FRIENDS", Integer.class)).isEqualTo(2);
+            assertThat(jdbcTemplate.queryForObject("SELECT USEFUL FROM REVIEWS", Integer.class)).isZero();
+            assertThat(context.getBean(MpaStorage.class).findAll()).hasSize(5);
+            assertThat(context.getBean(GenreStorage.class).findAll()).hasSize(6);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(String url) {
+        /* Аргументы командной строки, чтобы переопределить application.properties */
+        return new SpringApplicationBuilder(JavaFilmorateApplication.class).run(
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.hikari.minimum-idle=1",
+                "--spring.datasource.hikari.register-mbeans=false",
+                "--server.port=0");
+    }
+
+    /* Версия, контрольная сумма и время применения каждой миграции */
+    private static List<String> describe(MigrationInfo[] migrations) {
+        return Arrays.stream(migrations)
+                .map(info -> info.getVersion() + ":" + info.getChecksum() + ":" + info.getInstalledOn())
+                .collect(Collectors.toList());
+    }
+}
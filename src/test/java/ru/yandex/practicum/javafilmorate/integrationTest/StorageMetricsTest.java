@@ -0,0 +1,73 @@
+package ru.yandex.practicum.javafilmorate.integrationTest;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.javafilmorate.JavaFilmorateApplication;
+import ru.yandex.practicum.javafilmorate.model.Film;
+import ru.yandex.practicum.javafilmorate.model.Mpa;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = JavaFilmorateApplication.class)
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext
+class StorageMetricsTest {
+    private static final int FILMS_COUNT = 5;
+
+    private final MockMvc mockMvc;
+    private final MeterRegistry meterRegistry;
+    private final FilmService filmService;
+
+    @Test
+    @DisplayName("Методы хранилищ, строки и SQL-запросы на HTTP-запрос публикуются в Prometheus")
+    void testStorageMetrics() throws Exception {
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            filmService.addFilm(new Film(null, "Film " + i, "Description", LocalDate.of(2000, 1, 1), 100,
+                    new Mpa(1, null)));
+        }
+
+        mockMvc.perform(get("/films")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/999")).andExpect(status().isNotFound());
+
+        Timer findAll = meterRegistry.get("filmorate.storage")
+                .tags("storage", "FilmStorage", "method", "findAll", "exception", "none").timer();
+        assertThat(findAll.count()).isEqualTo(1);
+        DistributionSummary rows = meterRegistry.get("filmorate.storage.rows")
+                .tags("storage", "FilmStorage", "method", "findAll").summary();
+        assertThat(rows.totalAmount()).isEqualTo(FILMS_COUNT);
+        assertThat(meterRegistry.get("filmorate.storage")
+                .tags("storage", "FilmStorage", "method", "findById", "exception", "UnregisteredDataException")
+                .timer().count()).isEqualTo(1);
+        DistributionSummary queries = meterRegistry.get("filmorate.http.sql.queries")
+                .tags("method", "GET", "uri", "/films").summary();
+        assertThat(queries.count()).isEqualTo(1);
+        assertThat(queries.totalAmount()).isPositive();
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("filmorate_storage_seconds_bucket")))
+                .andExpect(content().string(containsString("filmorate_http_sql_queries_bucket")))
+                .andExpect(content().string(containsString("filmorate_storage_rows_count")));
+    }
+}
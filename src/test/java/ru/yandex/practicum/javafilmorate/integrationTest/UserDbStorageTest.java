@@ -15,11 +15,17 @@ import ru.yandex.practicum.javafilmorate.model.Mark;
 import ru.yandex.practicum.javafilmorate.model.Mpa;
 import ru.yandex.practicum.javafilmorate.model.User;
 import ru.yandex.practicum.javafilmorate.service.EventService;
+import ru.yandex.practicum.javafilmorate.service.FilmService;
+import ru.yandex.practicum.javafilmorate.service.FriendFeedService;
+import ru.yandex.practicum.javafilmorate.service.RecommendationService;
 import ru.yandex.practicum.javafilmorate.service.UserService;
 import ru.yandex.practicum.javafilmorate.storage.dao.FriendStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.MarkStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.FilmDbStorage;
 import ru.yandex.practicum.javafilmorate.storage.dao.implementation.UserDbStorage;
+import ru.yandex.practicum.javafilmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.javafilmorate.storage.index.FriendGraph;
+import ru.yandex.practicum.javafilmorate.storage.index.UserMarksIndex;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -38,6 +44,12 @@ class UserDbStorageTest {
     private final FriendStorage friendStorage;
     private final EventService eventService;
     private final MarkStorage markStorage;
+    private final RecommendationService recommendationService;
+    private final FilmService filmService;
+    private final FilmPopularityIndex popularityIndex;
+    private final FriendFeedService friendFeedService;
+    private final FriendGraph friendGraph;
+    private final UserMarksIndex userMarksIndex;
     private final User firstUser = new User(1, "email@yandex.ru", "Login1", "Name1", LocalDate.parse("1970-01-01"), null);
     private final User secontUser = new User(1, "email@gmail.com", "Login2", "Name2", LocalDate.parse("1980-01-01"), null);
     private final User thirdUser = new User(3, "email@gmail.com", "Login3", "Name3", LocalDate.parse("1990-01-01"), null);
@@ -92,7 +104,8 @@ class UserDbStorageTest {
     @Test
     @DisplayName("Проверка метода findSimilarUserId в UserService")
     void findRecommendationsForUserTest() {
-        UserService userService = new UserService(userDbStorage, filmDbStorage, friendStorage, eventService, markStorage);
+        UserService userService = new UserService(userDbStorage, filmDbStorage, friendStorage, eventService,
+                recommendationService, popularityIndex, friendFeedService, friendGraph, userMarksIndex);
 
         Film film1 = new Film(null, "Film1", "Description1", LocalDate.parse("1970-01-01"),
                 140, new Mpa(1, "G"));
@@ -140,4 +153,27 @@ class UserDbStorageTest {
         assertThat(films.get(0).getId()).isEqualTo(3);
         //assertThat(films.get(1).getId()).isEqualTo(5);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Кэш рекомендаций сбрасывается после новой оценки соседа")
+    void findCachedRecommendationsTest() {
+        Film film1 = filmDbStorage.addFilm(new Film(null, "Film1", "Description1", LocalDate.parse("1970-01-01"),
+                140, new Mpa(1, "G")));
+        Film film2 = filmDbStorage.addFilm(new Film(null, "Film2", "Description2", LocalDate.parse("1980-01-01"),
+                90, new Mpa(2, "PG")));
+        Film film3 = filmDbStorage.addFilm(new Film(null, "Film3", "Description3", LocalDate.parse("1990-01-01"),
+                190, new Mpa(2, "PG")));
+        int user1Id = firstUser.getId();
+        int user2Id = secontUser.getId();
+        filmService.addMark(film1.getId(), user1Id, 6);
+        filmService.addMark(film1.getId(), user2Id, 6);
+        filmService.addMark(film2.getId(), user2Id, 8);
+
+        List<Film> films = recommendationService.findRecommendations(user1Id);
+        assertThat(films).extracting(Film::getId).containsExactly(film2.getId());
+
+        filmService.addMark(film3.getId(), user2Id, 9);
+        films = recommendationService.findRecommendations(user1Id);
+        assertThat(films).extracting(Film::getId).containsExactly(film2.getId(), film3.getId());
+    }
+}